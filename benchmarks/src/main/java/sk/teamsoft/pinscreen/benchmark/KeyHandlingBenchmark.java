@@ -0,0 +1,90 @@
+package sk.teamsoft.pinscreen.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+
+import sk.teamsoft.pinscreen.core.KeypadLayout;
+import sk.teamsoft.pinscreen.core.PINEntrySession;
+import sk.teamsoft.pinscreen.core.PINValueBuffer;
+
+/**
+ * Entry path of the lock screen: digit taps, backspace, masking and submit, driven through {@link PINEntrySession}
+ * Steady state is expected to allocate nothing
+ */
+@State(Scope.Thread)
+public class KeyHandlingBenchmark {
+
+    private static final int MAX_LENGTH = 4;
+    private static final int[] DIGITS = {1, 2, 3, 4};
+    private static final int SEQUENCE_LENGTH = 1024;
+
+    private PINEntrySession mSession;
+
+    /**
+     * Pre-generated random keys, same for every run
+     */
+    private final int[] mSequence = new int[SEQUENCE_LENGTH];
+    private int mNext = 0;
+
+    @Setup
+    public void setup() {
+        mSession = new PINEntrySession(MAX_LENGTH);
+
+        Random random = new Random(42);
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            mSequence[i] = random.nextInt(KeypadLayout.STANDARD.size());
+        }
+    }
+
+    /**
+     * Single digit tap followed by backspace, value length stays stable
+     */
+    @Benchmark
+    public void keypress(Blackhole bh) {
+        bh.consume(mSession.onKey(DIGITS[0]));
+        mask(bh);
+        bh.consume(mSession.onKey(KeypadLayout.KEY_BACK));
+        mask(bh);
+    }
+
+    /**
+     * Whole PIN entered, submitted and rejected
+     */
+    @Benchmark
+    public void enterAndSubmit(Blackhole bh) {
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            bh.consume(mSession.onKey(DIGITS[i]));
+            mask(bh);
+        }
+        bh.consume(mSession.onKey(KeypadLayout.KEY_SUBMIT));
+        mSession.onVerified(false);
+    }
+
+    /**
+     * Random key of standard layout, every submit is rejected
+     */
+    @Benchmark
+    public int randomKey() {
+        int action = mSession.onKey(KeypadLayout.STANDARD.getKeyCode(mSequence[mNext]));
+        mNext = (mNext + 1) % SEQUENCE_LENGTH;
+        if (action == PINEntrySession.ACTION_VERIFY) {
+            mSession.onVerified(false);
+        }
+        return action;
+    }
+
+    /**
+     * Mask lookup done on every refresh of the value text
+     */
+    @Benchmark
+    public void mask(Blackhole bh) {
+        PINValueBuffer value = mSession.getValue();
+        bh.consume(value.getMask());
+        bh.consume(value.length());
+    }
+}
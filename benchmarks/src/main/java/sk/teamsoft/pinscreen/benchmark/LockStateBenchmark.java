@@ -0,0 +1,77 @@
+package sk.teamsoft.pinscreen.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import sk.teamsoft.pinscreen.core.IPINClock;
+import sk.teamsoft.pinscreen.core.PINLockTimer;
+
+/**
+ * Lock state evaluation, done on every {@code isAppLocked} call
+ */
+@State(Scope.Thread)
+public class LockStateBenchmark {
+
+    private static final long DELAY_MILLIS = 30000;
+
+    private static final IPINClock CLOCK = new IPINClock() {
+        @Override
+        public long elapsedRealtime() {
+            return System.nanoTime() / 1000000;
+        }
+    };
+
+    private PINLockTimer mPending;
+    private PINLockTimer mIdle;
+
+    @Setup
+    public void setup() {
+        mPending = new PINLockTimer(CLOCK, null);
+        mPending.setDelay(DELAY_MILLIS);
+        mPending.lockWithDelay();
+        mIdle = new PINLockTimer(CLOCK, null);
+    }
+
+    /**
+     * Delayed lock pending, clock is read on every call
+     */
+    @Benchmark
+    public boolean pendingLock() {
+        return mPending.isLocked();
+    }
+
+    /**
+     * Nothing scheduled
+     */
+    @Benchmark
+    public boolean idle() {
+        return mIdle.isLocked();
+    }
+
+    /**
+     * Single timer read by background callers at once
+     */
+    @State(Scope.Benchmark)
+    public static class Shared {
+        PINLockTimer mTimer;
+
+        @Setup
+        public void setup() {
+            mTimer = new PINLockTimer(CLOCK, null);
+            mTimer.setDelay(DELAY_MILLIS);
+            mTimer.lockWithDelay();
+        }
+    }
+
+    /**
+     * Concurrent reads of shared state, should scale with threads
+     */
+    @Benchmark
+    @Threads(4)
+    public boolean sharedPendingLock(Shared shared) {
+        return shared.mTimer.isLocked();
+    }
+}
@@ -0,0 +1,65 @@
+package sk.teamsoft.pinscreen.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import sk.teamsoft.pinscreen.core.MultiPINVerifier;
+import sk.teamsoft.pinscreen.core.PINCredential;
+import sk.teamsoft.pinscreen.core.PINExecutors;
+
+/**
+ * Identification among many credentials, sequential and split across cores
+ * Wrong entry is the worst case, every credential is derived
+ */
+@State(Scope.Thread)
+public class MultiVerificationBenchmark {
+
+    private static final int ITERATIONS = 1000;
+
+    @Param({"10", "100"})
+    public int identities;
+
+    private final char[] mLast = new char[4];
+    private final char[] mWrong = "abcd".toCharArray();
+
+    private MultiPINVerifier mSequential;
+    private MultiPINVerifier mParallel;
+
+    @Setup
+    public void setup() {
+        Map<String, PINCredential> credentials = new LinkedHashMap<>(identities);
+        for (int i = 0; i < identities; i++) {
+            credentials.put("user" + i, PINCredential.create(String.format("%04d", i), ITERATIONS));
+        }
+        String.format("%04d", identities - 1).getChars(0, 4, mLast, 0);
+
+        mSequential = new MultiPINVerifier(credentials, PINExecutors.parallel(), 1);
+        mParallel = new MultiPINVerifier(credentials);
+    }
+
+    @Benchmark
+    public String sequentialLast() {
+        return mSequential.identify(mLast, mLast.length);
+    }
+
+    @Benchmark
+    public String sequentialWrong() {
+        return mSequential.identify(mWrong, mWrong.length);
+    }
+
+    @Benchmark
+    public String parallelLast() {
+        return mParallel.identify(mLast, mLast.length);
+    }
+
+    @Benchmark
+    public String parallelWrong() {
+        return mParallel.identify(mWrong, mWrong.length);
+    }
+}
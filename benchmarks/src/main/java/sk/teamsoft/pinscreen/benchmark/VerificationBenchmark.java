@@ -0,0 +1,66 @@
+package sk.teamsoft.pinscreen.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import sk.teamsoft.pinscreen.core.PBKDF2PINVerifier;
+import sk.teamsoft.pinscreen.core.PINCredential;
+import sk.teamsoft.pinscreen.core.PlainPINVerifier;
+
+/**
+ * PIN verification, plaintext and hashed
+ */
+@State(Scope.Thread)
+public class VerificationBenchmark {
+
+    private static final String PIN = "1234";
+
+    private final char[] mCorrect = PIN.toCharArray();
+    private final char[] mWrong = "1235".toCharArray();
+
+    private PlainPINVerifier mPlainVerifier;
+
+    /**
+     * Hashed verifier, separate state so plaintext runs are not repeated per work factor
+     */
+    @State(Scope.Thread)
+    public static class Hashed {
+        @Param({"1000", "10000"})
+        public int iterations;
+
+        PBKDF2PINVerifier mVerifier;
+
+        @Setup
+        public void setup() {
+            mVerifier = new PBKDF2PINVerifier(PINCredential.create(PIN, iterations));
+        }
+    }
+
+    @Setup
+    public void setup() {
+        mPlainVerifier = new PlainPINVerifier(PIN);
+    }
+
+    @Benchmark
+    public boolean plainCorrect() {
+        return mPlainVerifier.verify(mCorrect, mCorrect.length);
+    }
+
+    @Benchmark
+    public boolean plainWrong() {
+        return mPlainVerifier.verify(mWrong, mWrong.length);
+    }
+
+    @Benchmark
+    public boolean hashedCorrect(Hashed hashed) {
+        return hashed.mVerifier.verify(mCorrect, mCorrect.length);
+    }
+
+    @Benchmark
+    public boolean hashedWrong(Hashed hashed) {
+        return hashed.mVerifier.verify(mWrong, mWrong.length);
+    }
+}
@@ -31,6 +31,10 @@ public class MainActivity extends AppCompatActivity implements
         PINScreenManager.getInstance().setupPIN(getSupportFragmentManager(), 6);
     }
 
+    public void showOverlay(View v) {
+        PINScreenManager.getInstance().askForPIN(this, true);
+    }
+
     @Override
     public void onPINEntered() {
         Toast.makeText(this, "PIN entered", Toast.LENGTH_SHORT).show();
@@ -38,7 +42,7 @@ public class MainActivity extends AppCompatActivity implements
 
     @Override
     public void onPINSetup(String pin) {
-        PINScreenManager.getInstance().setPIN(pin);
+        PINScreenManager.getInstance().hashPIN(pin);
         Toast.makeText(this, "PIN set", Toast.LENGTH_SHORT).show();
     }
 
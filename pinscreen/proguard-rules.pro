@@ -24,3 +24,30 @@
 -keep class sk.teamsoft.pinscreen.PINScreenManager {
     public *;
 }
+-keep class sk.teamsoft.pinscreen.IPINCredentialListener {
+    *;
+}
+-keep class sk.teamsoft.pinscreen.PINKeypadView {
+    public *;
+}
+-keep class sk.teamsoft.pinscreen.PINOverlay {
+    public *;
+}
+-keep class sk.teamsoft.pinscreen.IPINMetricsListener {
+    *;
+}
+-keep class sk.teamsoft.pinscreen.core.** {
+    public *;
+}
+-keep class sk.teamsoft.pinscreen.KeypadStyle {
+    public *;
+}
+-keep class sk.teamsoft.pinscreen.IPINUnlockListener {
+    *;
+}
+-keep class sk.teamsoft.pinscreen.PINUnlockRequest {
+    public *;
+}
+-keep class sk.teamsoft.pinscreen.IPINIdentityListener {
+    *;
+}
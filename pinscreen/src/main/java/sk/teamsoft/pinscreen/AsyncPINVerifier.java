@@ -0,0 +1,93 @@
+package sk.teamsoft.pinscreen;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.concurrent.Future;
+
+import sk.teamsoft.pinscreen.core.IPINIdentityVerifier;
+import sk.teamsoft.pinscreen.core.IPINVerifier;
+import sk.teamsoft.pinscreen.core.PINCrypto;
+import sk.teamsoft.pinscreen.core.PINExecutors;
+
+/**
+ * Runs {@link IPINVerifier} on the background executor
+ * and posts result back to the main thread
+ * After successful verification, outdated credential is re-hashed on the same thread
+ */
+class AsyncPINVerifier {
+
+    /**
+     * Result callback, always invoked on the main thread
+     */
+    interface Callback {
+        /**
+         * @param correct  true if entry was correct
+         * @param identity matched identity if {@link IPINIdentityVerifier} was used, null otherwise
+         */
+        void onVerified(boolean correct, String identity);
+    }
+
+    private static final String TAG = "AsyncPINVerifier";
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private AsyncPINVerifier() {
+    }
+
+    /**
+     * Verifies entry in background
+     * Entry buffer is owned by this call and wiped once verification finishes
+     *
+     * @param verifier verifier to use
+     * @param entry    buffer holding entered PIN
+     * @param length   number of valid characters in the buffer
+     * @param callback result callback
+     *
+     * @return future which can be used to cancel verification
+     */
+    static Future<?> verify(final IPINVerifier verifier,
+                            final char[] entry,
+                            final int length,
+                            final Callback callback) {
+        return PINExecutors.background().submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    boolean correct = false;
+                    String identity = null;
+                    PINMetrics.beginSection(PINMetrics.SECTION_VERIFY);
+                    try {
+                        if (verifier instanceof IPINIdentityVerifier) {
+                            identity = ((IPINIdentityVerifier) verifier).identify(entry, length);
+                            correct = identity != null;
+                        } else {
+                            correct = verifier.verify(entry, length);
+                        }
+                    } catch (RuntimeException e) {
+                        // treat failed verification as wrong entry, UI must not get stuck
+                        Log.w(TAG, "PIN verification failed", e);
+                    } finally {
+                        PINMetrics.endSection();
+                    }
+
+                    final boolean result = correct;
+                    final String matched = identity;
+                    sMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            callback.onVerified(result, matched);
+                        }
+                    });
+
+                    // unlock is already on its way, upgrade stored credential quietly
+                    if (correct) {
+                        PINScreenManager.getInstance().rehashIfNeeded(verifier, entry, length);
+                    }
+                } finally {
+                    PINCrypto.wipe(entry);
+                }
+            }
+        });
+    }
+}
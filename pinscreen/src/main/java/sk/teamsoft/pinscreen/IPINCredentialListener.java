@@ -0,0 +1,16 @@
+package sk.teamsoft.pinscreen;
+
+import sk.teamsoft.pinscreen.core.PINCredential;
+
+/**
+ * Callback for hashed credential changes
+ * Credential contains only salted hash, so it is safe to persist it
+ */
+public interface IPINCredentialListener {
+    /**
+     * Fired on main thread when new credential is in use
+     *
+     * @param credential new credential, persist it via {@link PINCredential#encode()}
+     */
+    void onPINCredentialChanged(PINCredential credential);
+}
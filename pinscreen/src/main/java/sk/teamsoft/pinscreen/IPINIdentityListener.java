@@ -0,0 +1,16 @@
+package sk.teamsoft.pinscreen;
+
+import sk.teamsoft.pinscreen.core.IPINIdentityVerifier;
+
+/**
+ * Variant of {@link IPINDialogListener} reporting who unlocked
+ * Used together with {@link IPINIdentityVerifier}, with other verifiers only {@link #onPINEntered()} is fired
+ */
+public interface IPINIdentityListener extends IPINDialogListener {
+    /**
+     * Fired instead of {@link #onPINEntered()} when entered PIN matches one of identities
+     *
+     * @param identity matched identity
+     */
+    void onPINEntered(String identity);
+}
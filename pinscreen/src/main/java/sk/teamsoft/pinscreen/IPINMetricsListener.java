@@ -0,0 +1,55 @@
+package sk.teamsoft.pinscreen;
+
+/**
+ * Receives lock screen performance metrics
+ * All callbacks are invoked on the main thread and should return quickly
+ * Register it via {@link PINScreenManager#setMetricsListener(IPINMetricsListener)}
+ */
+public interface IPINMetricsListener {
+    /**
+     * Fired when the first frame of lock screen is about to be drawn
+     *
+     * @param latencyMillis time since lock screen was requested by {@code askForPIN}
+     */
+    void onLockShown(long latencyMillis);
+
+    /**
+     * Fired when key press is reflected in the entered value
+     *
+     * @param latencyMillis time since the key was touched
+     */
+    void onKeyHandled(long latencyMillis);
+
+    /**
+     * Fired when verification result of submitted entry is available
+     * Speculative verification of entry which was changed instead of submitted is not reported
+     *
+     * @param latencyMillis time since verification started
+     * @param correct       true if PIN was correct
+     */
+    void onVerified(long latencyMillis, boolean correct);
+
+    /**
+     * Fired on every wrong entry
+     *
+     * @param count number of consecutive wrong entries since lock screen was shown
+     */
+    void onWrongEntry(int count);
+
+    /**
+     * Fired when wrong entry animation ends or is cancelled
+     *
+     * @param durationMillis time the animation was running
+     * @param droppedFrames  frames skipped while it was running, 0 where frame times are not available
+     */
+    void onWrongEntryAnimated(long durationMillis, int droppedFrames);
+
+    /**
+     * Fired when delayed lock takes effect
+     * Lock is evaluated lazily, so this comes from the thread reading lock state
+     *
+     * @param expectedMillis configured lock delay
+     * @param actualMillis   time elapsed since lock was requested until lock state was read
+     */
+    void onLockDelayElapsed(long expectedMillis, long actualMillis);
+}
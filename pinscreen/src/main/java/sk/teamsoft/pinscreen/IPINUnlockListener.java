@@ -0,0 +1,13 @@
+package sk.teamsoft.pinscreen;
+
+/**
+ * Receives outcome of {@link PINUnlockRequest}
+ */
+public interface IPINUnlockListener {
+    /**
+     * Fired on the main thread once lock screen of the request is closed
+     *
+     * @param unlocked true if correct PIN was entered, false if lock screen was cancelled
+     */
+    void onUnlockResult(boolean unlocked);
+}
@@ -0,0 +1,249 @@
+package sk.teamsoft.pinscreen;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.graphics.drawable.StateListDrawable;
+import android.support.v4.content.ContextCompat;
+import android.util.TypedValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import sk.teamsoft.pinscreen.core.KeypadLayout;
+
+/**
+ * Immutable keypad appearance
+ * Resolved once from theme attributes (see {@code R.styleable.PINKeypad}) and cached per style, density
+ * and font scale, key backgrounds share single drawable state
+ */
+public final class KeypadStyle {
+
+    /**
+     * Resolved styles, accessed only from the main thread
+     */
+    private static final Map<Long, KeypadStyle> sCache = new HashMap<>();
+
+    private final int mKeyColor;
+    private final int mPressedKeyColor;
+    private final int mBorderColor;
+    private final int mPressedBorderColor;
+    private final int mTextColor;
+    private final float mCornerRadius;
+    private final float mStrokeWidth;
+    private final float mTextSize;
+    private final float mSmallTextSize;
+    private final int mWrongEntryDuration;
+    private final float mWrongEntryShake;
+    /**
+     * Font scale the text sizes were resolved for
+     */
+    private final float mFontScale;
+
+    private final Drawable.ConstantState mBackgroundState;
+
+    /**
+     * Style with overridden pressed color, see {@link #withPressedColor(int)}
+     */
+    private KeypadStyle mOverride;
+
+    private KeypadStyle(int keyColor, int pressedKeyColor, int borderColor, int pressedBorderColor, int textColor,
+                        float cornerRadius, float strokeWidth, float textSize, float smallTextSize,
+                        int wrongEntryDuration, float wrongEntryShake, float fontScale) {
+        mKeyColor = keyColor;
+        mPressedKeyColor = pressedKeyColor;
+        mBorderColor = borderColor;
+        mPressedBorderColor = pressedBorderColor;
+        mTextColor = textColor;
+        mCornerRadius = cornerRadius;
+        mStrokeWidth = strokeWidth;
+        mTextSize = textSize;
+        mSmallTextSize = smallTextSize;
+        mWrongEntryDuration = wrongEntryDuration;
+        mWrongEntryShake = wrongEntryShake;
+        mFontScale = fontScale;
+        mBackgroundState = createBackground().getConstantState();
+    }
+
+    /**
+     * Resolves keypad style of the context theme
+     * Style is taken from {@code pinKeypadStyle} theme attribute, {@code PINKeypad} style is used by default
+     * Has to be called on main thread
+     *
+     * @param context themed context
+     *
+     * @return cached style
+     */
+    public static KeypadStyle obtain(Context context) {
+        TypedValue value = new TypedValue();
+        int styleRes = context.getTheme().resolveAttribute(R.attr.pinKeypadStyle, value, true)
+                ? value.resourceId : R.style.PINKeypad;
+        float density = context.getResources().getDisplayMetrics().density;
+        float fontScale = context.getResources().getConfiguration().fontScale;
+
+        long key = ((long) styleRes << 32) | Float.floatToIntBits(density);
+        KeypadStyle style = sCache.get(key);
+        // text sizes are in sp, style resolved for previous font scale is replaced
+        if (style == null || style.mFontScale != fontScale) {
+            style = resolve(context, styleRes, fontScale);
+            sCache.put(key, style);
+        }
+        return style;
+    }
+
+    private static KeypadStyle resolve(Context context, int styleRes, float fontScale) {
+        Resources res = context.getResources();
+        TypedArray a = context.obtainStyledAttributes(styleRes, R.styleable.PINKeypad);
+        try {
+            return new KeypadStyle(
+                    a.getColor(R.styleable.PINKeypad_pinKeyColor, Color.TRANSPARENT),
+                    a.getColor(R.styleable.PINKeypad_pinKeyPressedColor,
+                            ContextCompat.getColor(context, R.color.pinscreen_key_pressed)),
+                    a.getColor(R.styleable.PINKeypad_pinKeyBorderColor,
+                            ContextCompat.getColor(context, R.color.pinscreen_key_border)),
+                    a.getColor(R.styleable.PINKeypad_pinKeyPressedBorderColor,
+                            ContextCompat.getColor(context, R.color.pinscreen_key_pressed_border)),
+                    a.getColor(R.styleable.PINKeypad_pinKeyTextColor,
+                            ContextCompat.getColor(context, R.color.pinscreen_key_text)),
+                    a.getDimension(R.styleable.PINKeypad_pinKeyCornerRadius,
+                            res.getDimension(R.dimen.pinscreen_key_corner_radius)),
+                    a.getDimension(R.styleable.PINKeypad_pinKeyStrokeWidth,
+                            res.getDimension(R.dimen.pinscreen_key_stroke_width)),
+                    a.getDimension(R.styleable.PINKeypad_pinKeyTextSize,
+                            res.getDimension(R.dimen.pinscreen_text_size)),
+                    a.getDimension(R.styleable.PINKeypad_pinKeySmallTextSize,
+                            res.getDimension(R.dimen.pinscreen_smaller_text_size)),
+                    a.getInt(R.styleable.PINKeypad_pinWrongEntryDuration,
+                            res.getInteger(R.integer.pinscreen_wrong_entry_duration)),
+                    a.getDimension(R.styleable.PINKeypad_pinWrongEntryShake,
+                            res.getDimension(R.dimen.pinscreen_wrong_entry_shake)),
+                    fontScale);
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * @param pressedColor pressed key color
+     *
+     * @return style with given pressed color, cached for repeated calls with the same color
+     */
+    KeypadStyle withPressedColor(int pressedColor) {
+        if (pressedColor == mPressedKeyColor) {
+            return this;
+        }
+        KeypadStyle override = mOverride;
+        if (override == null || override.mPressedKeyColor != pressedColor) {
+            override = new KeypadStyle(mKeyColor, pressedColor, mBorderColor, mPressedBorderColor, mTextColor,
+                    mCornerRadius, mStrokeWidth, mTextSize, mSmallTextSize, mWrongEntryDuration, mWrongEntryShake,
+                    mFontScale);
+            mOverride = override;
+        }
+        return override;
+    }
+
+    /**
+     * Creates key background sharing drawable state with all other keys of this style
+     *
+     * @param res resources
+     *
+     * @return state list background
+     */
+    public Drawable newKeyBackground(Resources res) {
+        return mBackgroundState.newDrawable(res);
+    }
+
+    public int getKeyColor() {
+        return mKeyColor;
+    }
+
+    public int getPressedKeyColor() {
+        return mPressedKeyColor;
+    }
+
+    public int getBorderColor() {
+        return mBorderColor;
+    }
+
+    public int getPressedBorderColor() {
+        return mPressedBorderColor;
+    }
+
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    public float getCornerRadius() {
+        return mCornerRadius;
+    }
+
+    public float getStrokeWidth() {
+        return mStrokeWidth;
+    }
+
+    /**
+     * @return text size of number keys in pixels
+     */
+    public float getTextSize() {
+        return mTextSize;
+    }
+
+    /**
+     * @return text size of functional keys in pixels
+     */
+    public float getSmallTextSize() {
+        return mSmallTextSize;
+    }
+
+    /**
+     * @param keyCode key code from {@link KeypadLayout}
+     *
+     * @return text size of the key in pixels, functional keys have smaller font-size
+     */
+    public float getKeyTextSize(int keyCode) {
+        return KeypadLayout.isDigit(keyCode) ? mTextSize : mSmallTextSize;
+    }
+
+    /**
+     * @return duration of wrong entry shake and flash in milliseconds, 0 if disabled
+     */
+    public int getWrongEntryDuration() {
+        return mWrongEntryDuration;
+    }
+
+    /**
+     * @return distance the PIN field is shaken by on wrong entry, in pixels
+     */
+    public float getWrongEntryShake() {
+        return mWrongEntryShake;
+    }
+
+    /**
+     * Builds stateList background drawable for keys
+     *
+     * @return drawable
+     */
+    private Drawable createBackground() {
+        int stroke = Math.max(1, Math.round(mStrokeWidth));
+
+        // default state
+        GradientDrawable defaultGd = new GradientDrawable(GradientDrawable.Orientation.BOTTOM_TOP,
+                new int[]{mKeyColor, mKeyColor});
+        defaultGd.setStroke(stroke, mBorderColor);
+        defaultGd.setCornerRadius(mCornerRadius);
+
+        // pressed state
+        GradientDrawable pressedGd = new GradientDrawable(GradientDrawable.Orientation.BOTTOM_TOP,
+                new int[]{mPressedKeyColor, mPressedKeyColor});
+        pressedGd.setStroke(stroke, mPressedBorderColor);
+        pressedGd.setCornerRadius(mCornerRadius);
+
+        StateListDrawable drawable = new StateListDrawable();
+        drawable.addState(new int[]{android.R.attr.state_pressed}, pressedGd);
+        drawable.addState(new int[]{}, defaultGd);
+        return drawable;
+    }
+}
@@ -0,0 +1,186 @@
+package sk.teamsoft.pinscreen;
+
+import android.view.MotionEvent;
+
+/**
+ * Turns touches into key clicks for keypads which resolve touched key directly from their geometry
+ * Every pointer is tracked on its own, so second finger landing before the first one lifts is not lost
+ * <p>
+ * Key is clicked when its pointer goes up, or right on touch down if activation on down is enabled,
+ * pressed state is shown while pointer stays on the key
+ */
+class KeypadTouchHandler {
+
+    static final int NO_KEY = -1;
+
+    /**
+     * Keypad resolving keys and showing their pressed state
+     */
+    interface Target {
+        /**
+         * @return key position under given coordinates, or {@link #NO_KEY}
+         */
+        int keyAt(float x, float y);
+
+        void setKeyPressed(int position, boolean pressed);
+
+        void onKeyClick(int position);
+    }
+
+    /**
+     * More simultaneous pointers are ignored
+     */
+    private static final int MAX_POINTERS = 10;
+
+    private final Target mTarget;
+    private final int[] mPointerIds = new int[MAX_POINTERS];
+    private final int[] mPointerKeys = new int[MAX_POINTERS];
+    private final long[] mPointerDownTimes = new long[MAX_POINTERS];
+    private int mPointerCount = 0;
+
+    private boolean mActivateOnDown = false;
+    private long mLastDownTime;
+
+    KeypadTouchHandler(Target target) {
+        mTarget = target;
+    }
+
+    /**
+     * @param activateOnDown true to click key as soon as it is touched, instead of when finger lifts
+     */
+    void setActivateOnDown(boolean activateOnDown) {
+        mActivateOnDown = activateOnDown;
+    }
+
+    boolean isActivateOnDown() {
+        return mActivateOnDown;
+    }
+
+    /**
+     * @return uptime of touch down which started the last delivered key click
+     */
+    long getLastDownTime() {
+        return mLastDownTime;
+    }
+
+    /**
+     * @param event touch event
+     *
+     * @return true while at least one pointer is tracked
+     */
+    boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                cancel();
+                onPointerDown(event, event.getActionIndex());
+                break;
+
+            case MotionEvent.ACTION_POINTER_DOWN:
+                onPointerDown(event, event.getActionIndex());
+                break;
+
+            case MotionEvent.ACTION_MOVE:
+                onMove(event);
+                break;
+
+            case MotionEvent.ACTION_POINTER_UP:
+            case MotionEvent.ACTION_UP:
+                onPointerUp(event.getPointerId(event.getActionIndex()));
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
+                cancel();
+                break;
+        }
+        return mPointerCount > 0;
+    }
+
+    /**
+     * Releases all pointers without clicking
+     */
+    void cancel() {
+        while (mPointerCount > 0) {
+            int key = mPointerKeys[--mPointerCount];
+            if (key != NO_KEY && !isKeyHeld(key)) {
+                mTarget.setKeyPressed(key, false);
+            }
+        }
+    }
+
+    private void onPointerDown(MotionEvent event, int index) {
+        int key = mTarget.keyAt(event.getX(index), event.getY(index));
+        if (key == NO_KEY || mPointerCount == MAX_POINTERS) {
+            return;
+        }
+
+        mPointerIds[mPointerCount] = event.getPointerId(index);
+        mPointerKeys[mPointerCount] = key;
+        mPointerDownTimes[mPointerCount] = event.getEventTime();
+        mPointerCount++;
+        mTarget.setKeyPressed(key, true);
+
+        if (mActivateOnDown) {
+            mLastDownTime = event.getEventTime();
+            mTarget.onKeyClick(key);
+        }
+    }
+
+    /**
+     * Pointer which left its key cancels the click
+     */
+    private void onMove(MotionEvent event) {
+        for (int i = 0; i < mPointerCount; i++) {
+            int key = mPointerKeys[i];
+            int index = event.findPointerIndex(mPointerIds[i]);
+            if (key == NO_KEY || index < 0 || mTarget.keyAt(event.getX(index), event.getY(index)) == key) {
+                continue;
+            }
+
+            mPointerKeys[i] = NO_KEY;
+            if (!isKeyHeld(key)) {
+                mTarget.setKeyPressed(key, false);
+            }
+        }
+    }
+
+    private void onPointerUp(int pointerId) {
+        for (int i = 0; i < mPointerCount; i++) {
+            if (mPointerIds[i] != pointerId) {
+                continue;
+            }
+
+            int key = mPointerKeys[i];
+            long downTime = mPointerDownTimes[i];
+            remove(i);
+            if (key != NO_KEY) {
+                if (!isKeyHeld(key)) {
+                    mTarget.setKeyPressed(key, false);
+                }
+                if (!mActivateOnDown) {
+                    mLastDownTime = downTime;
+                    mTarget.onKeyClick(key);
+                }
+            }
+            return;
+        }
+    }
+
+    /**
+     * @return true if any tracked pointer still holds the key
+     */
+    private boolean isKeyHeld(int key) {
+        for (int i = 0; i < mPointerCount; i++) {
+            if (mPointerKeys[i] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(int index) {
+        mPointerCount--;
+        mPointerIds[index] = mPointerIds[mPointerCount];
+        mPointerKeys[index] = mPointerKeys[mPointerCount];
+        mPointerDownTimes[index] = mPointerDownTimes[mPointerCount];
+    }
+}
@@ -0,0 +1,690 @@
+package sk.teamsoft.pinscreen;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+import sk.teamsoft.pinscreen.core.IKeypadLayoutProvider;
+import sk.teamsoft.pinscreen.core.IPINVerifier;
+import sk.teamsoft.pinscreen.core.KeypadLayout;
+import sk.teamsoft.pinscreen.core.PINEntrySession;
+import sk.teamsoft.pinscreen.core.PINThrottle;
+import sk.teamsoft.pinscreen.core.PINValueBuffer;
+import sk.teamsoft.pinscreen.core.StoredPINVerifier;
+
+/**
+ * Entry logic of the lock screen, independent of how it is hosted
+ * Shared by {@link PINScreen} dialog and {@link PINOverlay}
+ */
+class LockScreenController implements RecyclerItemClickListener.OnItemClickListener,
+        PINKeypadView.OnKeyClickListener {
+
+    /**
+     * Component hosting the lock screen views
+     */
+    interface Host {
+        /**
+         * @return listener for results, or null if host is not attached
+         */
+        IPINDialogListener getListener();
+
+        /**
+         * @return true if lock screen is visible and accepts input
+         */
+        boolean isInteractive();
+
+        /**
+         * PIN was entered or set up, host should close the lock screen
+         * May be called after host state was saved
+         */
+        void close();
+    }
+
+    private static final int NO_KEY = -1;
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+    private static final Executor MAIN_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            sMainHandler.post(command);
+        }
+    };
+
+    private final Host mHost;
+
+    /**
+     * Entry state, maximum PIN length is 4 by default
+     * Can be changed via {@link #setMaxLength(int)}
+     */
+    private final PINEntrySession mSession = new PINEntrySession(4);
+    private IPINVerifier mVerifier;
+    private boolean mActivateOnDown = false;
+
+    /**
+     * Keypad layout, new one is taken from the provider every time views are bound
+     */
+    private IKeypadLayoutProvider mLayoutProvider = KeypadLayout.STANDARD_PROVIDER;
+    private KeypadLayout mLayout = KeypadLayout.STANDARD;
+
+    /**
+     * Verification state
+     * Verification starts as soon as the last digit is entered,
+     * it is bound to generation of the value, so stale results are discarded
+     */
+    private int mVerificationGeneration;
+    private Future<?> mPendingVerification;
+    private Boolean mVerificationResult;
+    private String mVerificationIdentity;
+    private boolean mSubmitPending = false;
+
+    private LockScreenViews mViews;
+    private RecyclerItemClickListener mItemClickListener;
+
+    /**
+     * Restores hint once throttling wait is over
+     * Posted once for the whole wait, so no timer polls the main thread
+     */
+    private final Runnable mThrottleEnd = new Runnable() {
+        @Override
+        public void run() {
+            if (mViews != null) {
+                refreshHint();
+            }
+        }
+    };
+
+    /**
+     * Renders value text on the next frame
+     * Posted once per frame, however many keys arrive within it
+     */
+    private boolean mRenderScheduled = false;
+    private final Runnable mRenderValue = new Runnable() {
+        @Override
+        public void run() {
+            mRenderScheduled = false;
+            renderValueText();
+            if (mPendingKeyDownTime > 0) {
+                PINMetrics.keyHandled(SystemClock.uptimeMillis() - mPendingKeyDownTime);
+                mPendingKeyDownTime = 0;
+            }
+        }
+    };
+
+    /**
+     * Metrics state
+     */
+    private long mVerificationStart;
+    /**
+     * Latency of the cached verification result, reported only once the result is submitted
+     */
+    private long mVerificationLatency;
+    private long mShowRequestTime;
+    /**
+     * Touch down of the oldest key waiting for render of the value, 0 if none
+     */
+    private long mPendingKeyDownTime = 0;
+    private int mWrongEntries = 0;
+    private final ViewTreeObserver.OnPreDrawListener mFirstFrameListener =
+            new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    if (mViews != null) {
+                        mViews.root.getViewTreeObserver().removeOnPreDrawListener(this);
+                    }
+                    PINMetrics.lockShown(SystemClock.uptimeMillis() - mShowRequestTime);
+                    return true;
+                }
+            };
+
+    LockScreenController(Host host) {
+        mHost = host;
+    }
+
+    void setMaxLength(int length) {
+        mSession.setMaxLength(length);
+    }
+
+    int getMaxLength() {
+        return mSession.getMaxLength();
+    }
+
+    void setAutoSubmit(boolean autoSubmit) {
+        mSession.setAutoSubmit(autoSubmit);
+    }
+
+    boolean isAutoSubmit() {
+        return mSession.isAutoSubmit();
+    }
+
+    void setActivateOnDown(boolean activateOnDown) {
+        mActivateOnDown = activateOnDown;
+        if (mViews != null) {
+            applyActivateOnDown();
+        }
+    }
+
+    boolean isActivateOnDown() {
+        return mActivateOnDown;
+    }
+
+    void setVerifier(IPINVerifier verifier) {
+        mVerifier = verifier;
+    }
+
+    void setSetup(boolean isSetup) {
+        mSession.setSetup(isSetup);
+        if (mViews != null) {
+            refreshHint();
+        }
+    }
+
+    boolean isSetup() {
+        return mSession.isSetup();
+    }
+
+    /**
+     * Sets provider of keypad layout
+     * Bound views are switched to a new layout only if provider changed
+     *
+     * @param provider layout provider
+     */
+    void setKeypadLayout(IKeypadLayoutProvider provider) {
+        if (provider == null) {
+            provider = KeypadLayout.STANDARD_PROVIDER;
+        }
+        if (provider != mLayoutProvider) {
+            mLayoutProvider = provider;
+            if (mViews != null) {
+                applyLayout();
+            }
+        }
+    }
+
+    /**
+     * @return entry session holding entered value
+     */
+    PINEntrySession getSession() {
+        return mSession;
+    }
+
+    /**
+     * Updates verifier and mode at once
+     *
+     * @param verifier verifier to check user entry with
+     * @param isSetup  is lock screen for setting up the first PIN
+     */
+    void updateSettings(IPINVerifier verifier, boolean isSetup) {
+        setVerifier(verifier);
+        setSetup(isSetup);
+        if (!isSetup && verifier != null) {
+            applyPINLength(verifier);
+        }
+    }
+
+    /**
+     * Uses length of the verified PIN as maximum length
+     * Stored PIN may not be loaded yet on cold start, its length is applied once the store is loaded
+     *
+     * @param verifier verifier to take the length from
+     */
+    private void applyPINLength(final IPINVerifier verifier) {
+        int length = verifier.getPINLength();
+        if (length > 0) {
+            setMaxLength(length);
+        } else if (verifier instanceof StoredPINVerifier) {
+            ((StoredPINVerifier) verifier).getStore().whenLoaded(new Runnable() {
+                @Override
+                public void run() {
+                    int loaded = verifier.getPINLength();
+                    if (mVerifier == verifier && !mSession.isSetup() && loaded > 0) {
+                        setMaxLength(loaded);
+                    }
+                }
+            }, MAIN_EXECUTOR);
+        }
+    }
+
+    /**
+     * Binds views to this controller and starts accepting key clicks
+     *
+     * @param views   lock screen views
+     * @param context hosting context
+     */
+    void bind(LockScreenViews views, Context context) {
+        mViews = views;
+        applyLayout();
+        refreshHint();
+        renderValueText();
+
+        if (views.keypad != null) {
+            views.keypad.setOnKeyClickListener(this);
+        } else {
+            // listener is kept for views bound again, e.g. after rotation
+            if (mItemClickListener == null) {
+                mItemClickListener = new RecyclerItemClickListener(context, this);
+            }
+            views.numbersGrid.addOnItemTouchListener(mItemClickListener);
+        }
+        applyActivateOnDown();
+
+        mShowRequestTime = PINMetrics.takeShowRequestTime();
+        if (mShowRequestTime > 0) {
+            views.root.getViewTreeObserver().addOnPreDrawListener(mFirstFrameListener);
+        }
+    }
+
+    /**
+     * Stops delivering key clicks and releases views
+     *
+     * @return released views, or null if nothing was bound
+     */
+    LockScreenViews unbind() {
+        LockScreenViews views = mViews;
+        detachKeypad();
+        if (views != null) {
+            views.root.getViewTreeObserver().removeOnPreDrawListener(mFirstFrameListener);
+            views.root.removeCallbacks(mThrottleEnd);
+            views.root.removeCallbacks(mRenderValue);
+            views.wrongEntryAnimator.cancel();
+        }
+        mRenderScheduled = false;
+        mPendingKeyDownTime = 0;
+        mViews = null;
+        return views;
+    }
+
+    /**
+     * Wipes entered PIN and drops pending verification
+     */
+    void destroy() {
+        discardVerification();
+        mSession.reset();
+    }
+
+    /**
+     * Handles hardware keyboard digits, DEL and ENTER
+     *
+     * @param keyCode key code
+     * @param event   key event
+     *
+     * @return true if key belongs to the keypad, both its down and up events are consumed
+     */
+    boolean onKeyEvent(int keyCode, KeyEvent event) {
+        int key = toKeypadKey(keyCode);
+        if (key == NO_KEY) {
+            return false;
+        }
+
+        // only backspace repeats while held
+        if (event.getAction() == KeyEvent.ACTION_DOWN
+                && (event.getRepeatCount() == 0 || key == KeypadLayout.KEY_BACK)) {
+            PINMetrics.beginSection(PINMetrics.SECTION_KEY);
+            try {
+                handleKeyCode(key);
+            } finally {
+                PINMetrics.endSection();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Enters several digits at once, e.g. from accessibility service
+     * Non-digit characters are skipped, entry stops once PIN is submitted
+     *
+     * @param digits digits to enter
+     *
+     * @return number of digits which changed the entered value
+     */
+    int enterDigits(CharSequence digits) {
+        int accepted = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                continue;
+            }
+            if (!handleKeyCode(c - '0')) {
+                break;
+            }
+            accepted++;
+        }
+        return accepted;
+    }
+
+    @Override
+    public void onItemClick(View view, int position) {
+        onKeyClick(position);
+    }
+
+    @Override
+    public void onKeyClick(int position) {
+        PINMetrics.beginSection(PINMetrics.SECTION_KEY);
+        try {
+            handleKeyCode(mLayout.getKeyCode(position));
+        } finally {
+            PINMetrics.endSection();
+        }
+
+        // latency is reported once the value is rendered, see mRenderValue
+        if (mRenderScheduled && mPendingKeyDownTime == 0 && PINMetrics.isEnabled()) {
+            mPendingKeyDownTime = getLastDownTime();
+        }
+    }
+
+    /**
+     * Entry logic lives in {@link PINEntrySession}, only its actions are carried out here
+     *
+     * @param keyCode digit value, {@link KeypadLayout#KEY_BACK} or {@link KeypadLayout#KEY_SUBMIT}
+     *
+     * @return true if key changed the session, false if it was refused
+     */
+    private boolean handleKeyCode(int keyCode) {
+        if (!mHost.isInteractive() || mSession.getState() != PINEntrySession.STATE_ENTRY) {
+            return false;
+        }
+
+        if (getThrottleWait() > 0) {
+            // entry is refused until the wait is over
+            refreshHint();
+            return false;
+        }
+
+        int action = mSession.onKey(keyCode);
+        if (action == PINEntrySession.ACTION_NONE) {
+            return false;
+        }
+        if (mViews != null) {
+            // typing again, wrong entry feedback is over
+            mViews.wrongEntryAnimator.cancel();
+        }
+
+        switch (action) {
+            case PINEntrySession.ACTION_CHANGED:
+                discardVerification();
+                invalidateValueText();
+                break;
+
+            // start verification ahead of submit, so OK returns almost instantly
+            case PINEntrySession.ACTION_FILLED:
+                invalidateValueText();
+                startVerification();
+                break;
+
+            case PINEntrySession.ACTION_SETUP:
+                submitSetup();
+                break;
+
+            case PINEntrySession.ACTION_VERIFY:
+                invalidateValueText();
+                submitPIN();
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Maps hardware key to keypad key code
+     *
+     * @return keypad key code, or {@link #NO_KEY} if key is not part of the keypad
+     */
+    private static int toKeypadKey(int keyCode) {
+        if (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9) {
+            return keyCode - KeyEvent.KEYCODE_0;
+        }
+        if (keyCode >= KeyEvent.KEYCODE_NUMPAD_0 && keyCode <= KeyEvent.KEYCODE_NUMPAD_9) {
+            return keyCode - KeyEvent.KEYCODE_NUMPAD_0;
+        }
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DEL:
+                return KeypadLayout.KEY_BACK;
+            case KeyEvent.KEYCODE_ENTER:
+            case KeyEvent.KEYCODE_NUMPAD_ENTER:
+                return KeypadLayout.KEY_SUBMIT;
+            default:
+                return NO_KEY;
+        }
+    }
+
+    /**
+     * @return uptime of touch down of the last key click, or 0 if unknown
+     */
+    private long getLastDownTime() {
+        if (mViews != null && mViews.keypad != null) {
+            return mViews.keypad.getLastDownTime();
+        }
+        return mItemClickListener != null ? mItemClickListener.getLastDownTime() : 0;
+    }
+
+    private void applyActivateOnDown() {
+        if (mViews.keypad != null) {
+            mViews.keypad.setActivateOnDown(mActivateOnDown);
+        }
+        if (mItemClickListener != null) {
+            mItemClickListener.setActivateOnDown(mActivateOnDown);
+        }
+    }
+
+    /**
+     * Takes layout from the provider and shows it, scrambled layouts are reshuffled this way
+     */
+    private void applyLayout() {
+        mLayout = mLayoutProvider.getLayout();
+        mViews.setLayout(mLayout);
+    }
+
+    /**
+     * @return milliseconds until next attempt is allowed, setup is never throttled
+     */
+    private long getThrottleWait() {
+        PINThrottle throttle = PINScreenManager.getInstance().getThrottle();
+        return mSession.isSetup() || throttle == null ? 0 : throttle.getRemainingWait();
+    }
+
+    private void refreshHint() {
+        long wait = getThrottleWait();
+        mViews.root.removeCallbacks(mThrottleEnd);
+        if (wait > 0) {
+            long seconds = (wait + 999) / 1000;
+            mViews.valueText.setHint(mViews.valueText.getContext().getString(
+                    R.string.pinscreen_throttled_hint, seconds));
+            mViews.root.postDelayed(mThrottleEnd, wait);
+        } else if (mSession.isSetup()) {
+            mViews.valueText.setHint(R.string.pinscreen_setup_pin_hint);
+        } else {
+            mViews.valueText.setHint(R.string.pinscreen_pin_hint_default);
+        }
+    }
+
+    /**
+     * Schedules render of the value text on the next frame
+     * Value itself is already updated, so several inputs within one frame are rendered once
+     */
+    private void invalidateValueText() {
+        if (mViews != null && !mRenderScheduled) {
+            mRenderScheduled = true;
+            ViewCompat.postOnAnimation(mViews.root, mRenderValue);
+        }
+    }
+
+    /**
+     * Mask currently entered PIN with asterisk signs
+     * Preallocated mask is passed as char range, so TextView reuses its wrapper and nothing is allocated
+     */
+    private void renderValueText() {
+        if (mViews != null) {
+            PINValueBuffer value = mSession.getValue();
+            mViews.valueText.setText(value.getMask(), 0, value.length());
+        }
+    }
+
+    /**
+     * Passes newly set up PIN to the listener
+     */
+    private void submitSetup() {
+        IPINDialogListener listener = mHost.getListener();
+        if (listener != null) {
+            listener.onPINSetup(mSession.getValue().toString());
+            detachKeypad();
+            mHost.close();
+        }
+        mSession.reset();
+    }
+
+    /**
+     * Submits PIN
+     * Takes care of Error handling
+     * Verification runs in background, registered callback is run with the result
+     */
+    private void submitPIN() {
+        IPINDialogListener listener = mHost.getListener();
+        if (listener == null) {
+            discardVerification();
+            mSession.reset();
+        } else if (mVerifier == null) {
+            mSession.onVerified(false);
+            listener.onWrongEntry();
+            invalidateValueText();
+        } else {
+            if ((mPendingVerification == null && mVerificationResult == null)
+                    || mVerificationGeneration != mSession.getGeneration()) {
+                startVerification();
+            }
+
+            if (mVerificationResult != null) {
+                // speculative result for this exact value is ready
+                onVerificationResult(mVerificationResult, mVerificationIdentity);
+            } else {
+                mSubmitPending = true;
+            }
+        }
+    }
+
+    /**
+     * Verifies current value in background
+     * Result is cached for the current generation of the value
+     */
+    private void startVerification() {
+        discardVerification();
+        if (mVerifier == null) {
+            return;
+        }
+
+        // copy is handed over to background thread, which wipes it
+        char[] entry = mSession.getValue().copy();
+
+        final int generation = mSession.getGeneration();
+        mVerificationGeneration = generation;
+        mVerificationStart = SystemClock.uptimeMillis();
+        mPendingVerification = AsyncPINVerifier.verify(mVerifier, entry, entry.length,
+                new AsyncPINVerifier.Callback() {
+                    @Override
+                    public void onVerified(boolean correct, String identity) {
+                        if (generation != mSession.getGeneration() || mPendingVerification == null) {
+                            // value was changed meanwhile
+                            return;
+                        }
+
+                        // speculative result is not reported unless user submits this value
+                        mVerificationLatency = SystemClock.uptimeMillis() - mVerificationStart;
+                        mPendingVerification = null;
+                        mVerificationResult = correct;
+                        mVerificationIdentity = identity;
+                        if (mSubmitPending) {
+                            onVerificationResult(correct, identity);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Drops pending or cached verification of the previous value
+     */
+    private void discardVerification() {
+        if (mPendingVerification != null) {
+            mPendingVerification.cancel(false);
+            mPendingVerification = null;
+        }
+        mVerificationResult = null;
+        mVerificationIdentity = null;
+        mSubmitPending = false;
+    }
+
+    /**
+     * Handles result of background verification
+     *
+     * @param correct  true if entered PIN was correct
+     * @param identity matched identity, or null if verifier does not distinguish identities
+     */
+    private void onVerificationResult(boolean correct, String identity) {
+        PINMetrics.verified(mVerificationLatency, correct);
+        discardVerification();
+        mSession.onVerified(correct);
+        recordAttempt(correct);
+        IPINDialogListener listener = mHost.getListener();
+        if (listener == null) {
+            return;
+        }
+
+        if (correct) {
+            mWrongEntries = 0;
+            PINScreenManager.getInstance().onUnlocked();
+            if (identity != null && listener instanceof IPINIdentityListener) {
+                ((IPINIdentityListener) listener).onPINEntered(identity);
+            } else {
+                listener.onPINEntered();
+            }
+            detachKeypad();
+            mHost.close();
+        } else {
+            PINMetrics.wrongEntry(++mWrongEntries);
+            listener.onWrongEntry();
+            invalidateValueText();
+            if (mViews != null) {
+                refreshHint();
+                mViews.wrongEntryAnimator.start();
+            }
+        }
+    }
+
+    /**
+     * Updates attempt history of the throttle
+     *
+     * @param correct true if entered PIN was correct
+     */
+    private void recordAttempt(boolean correct) {
+        PINThrottle throttle = PINScreenManager.getInstance().getThrottle();
+        if (throttle == null) {
+            return;
+        }
+
+        if (correct) {
+            throttle.recordSuccess();
+        } else {
+            throttle.recordFailure();
+        }
+        PINScreenManager.getInstance().onThrottleChanged();
+    }
+
+    /**
+     * Stops delivering key clicks, lock screen is being closed
+     */
+    private void detachKeypad() {
+        if (mViews == null) {
+            return;
+        }
+        if (mViews.numbersGrid != null && mItemClickListener != null) {
+            mViews.numbersGrid.removeOnItemTouchListener(mItemClickListener);
+        }
+        if (mViews.keypad != null) {
+            mViews.keypad.setOnKeyClickListener(null);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package sk.teamsoft.pinscreen;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.res.Configuration;
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.DisplayMetrics;
+import android.view.ContextThemeWrapper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.TextView;
+
+import sk.teamsoft.pinscreen.core.KeypadLayout;
+
+/**
+ * Inflated lock screen layout with bound keypad
+ * Views inflated with application context can be created ahead of time, cached and reused by any Activity,
+ * including the one recreated after rotation
+ */
+class LockScreenViews {
+
+    /**
+     * Lock screen has no orientation-specific resources, so rotation only needs relayout
+     */
+    private static final int IGNORED_CONFIG_CHANGES =
+            ActivityInfo.CONFIG_ORIENTATION | ActivityInfo.CONFIG_SCREEN_SIZE;
+
+    /**
+     * Lock screen is designed for the light theme of the original dialog,
+     * views are themed with it, so dark app theme does not turn the PIN text white on white background
+     */
+    private static final int THEME = android.R.style.Theme_Light_NoTitleBar_Fullscreen;
+
+    /**
+     * Single pre-warmed instance, accessed only from the main thread
+     */
+    private static LockScreenViews sCached;
+
+    final View root;
+    final TextView valueText;
+    final RecyclerView numbersGrid;
+    final PINKeypadView keypad;
+    final WrongEntryAnimator wrongEntryAnimator;
+
+    private final boolean mKeypadMode;
+    private final KeypadStyle mStyle;
+    private final Configuration mConfiguration;
+    private final boolean mReusable;
+
+    private LockScreenViews(Context context, boolean useKeypadView, KeypadStyle style, boolean reusable) {
+        mKeypadMode = useKeypadView;
+        mStyle = style;
+        mConfiguration = new Configuration(context.getResources().getConfiguration());
+        mReusable = reusable;
+
+        // app theme stays underneath, so keypad style set by the theme is kept
+        Context themed = new ContextThemeWrapper(context, THEME);
+        root = LayoutInflater.from(themed).inflate(
+                useKeypadView ? R.layout.lock_screen_keypad : R.layout.lock_screen, null);
+        valueText = (TextView) root.findViewById(R.id.pin_value);
+        numbersGrid = useKeypadView ? null : (RecyclerView) root.findViewById(R.id.numbers_grid);
+        keypad = useKeypadView ? (PINKeypadView) root.findViewById(R.id.numbers_keypad) : null;
+
+        if (valueText == null || (keypad == null && numbersGrid == null)) {
+            throw new AssertionError("Lock screen has invalid layout");
+        }
+
+        if (useKeypadView) {
+            keypad.setStyle(style);
+            keypad.setLayout(KeypadLayout.STANDARD);
+        } else {
+            numbersGrid.setLayoutManager(new GridLayoutManager(themed, 3));
+            numbersGrid.setAdapter(new PINScreen.LockGridAdapter(themed, style, KeypadLayout.STANDARD));
+            numbersGrid.setHasFixedSize(true);
+        }
+        wrongEntryAnimator = new WrongEntryAnimator(valueText, useKeypadView ? keypad : numbersGrid, style);
+    }
+
+    /**
+     * Shows keys in given layout, only changed keys are rebound
+     *
+     * @param layout keypad layout
+     */
+    void setLayout(KeypadLayout layout) {
+        if (keypad != null) {
+            keypad.setLayout(layout);
+        } else {
+            ((PINScreen.LockGridAdapter) numbersGrid.getAdapter()).setLayout(layout);
+        }
+    }
+
+    /**
+     * Inflates lock screen for immediate use
+     * Application context is used unless Activity theme changes keypad style,
+     * so views hold no Activity and can outlive it
+     *
+     * @param context       hosting context
+     * @param useKeypadView true to use custom-drawn keypad
+     *
+     * @return cached pre-warmed views if compatible, otherwise newly inflated views
+     */
+    static LockScreenViews obtain(Context context, boolean useKeypadView) {
+        KeypadStyle style = PINScreen.resolveStyle(context);
+        LockScreenViews views = sCached;
+        sCached = null;
+        if (views != null && views.isCompatible(context, useKeypadView, style)) {
+            views.detachFromParent();
+            return views;
+        }
+
+        Context appContext = context.getApplicationContext();
+        boolean reusable = PINScreen.resolveStyle(appContext) == style;
+        return new LockScreenViews(reusable ? appContext : context, useKeypadView, style, reusable);
+    }
+
+    /**
+     * Checks whether these views can be shown by another Activity, e.g. after rotation
+     *
+     * @param context       new hosting context
+     * @param useKeypadView true to use custom-drawn keypad
+     *
+     * @return true if views can be reused as they are
+     */
+    boolean canReuse(Context context, boolean useKeypadView) {
+        return mReusable && isCompatible(context, useKeypadView, PINScreen.resolveStyle(context));
+    }
+
+    /**
+     * @return true if views hold no Activity
+     */
+    boolean isReusable() {
+        return mReusable;
+    }
+
+    /**
+     * Removes views from the previous host, so they can be attached to a new one
+     */
+    void detachFromParent() {
+        ViewParent parent = root.getParent();
+        if (parent instanceof ViewGroup) {
+            ((ViewGroup) parent).removeView(root);
+        }
+    }
+
+    /**
+     * Inflates, binds and lays out lock screen ahead of time
+     * Uses application context, so no Activity is retained by the cache
+     *
+     * @param context       any context
+     * @param useKeypadView true to use custom-drawn keypad
+     */
+    static void prewarm(Context context, boolean useKeypadView) {
+        Context appContext = context.getApplicationContext();
+        KeypadStyle style = PINScreen.resolveStyle(appContext);
+        if (sCached != null && sCached.isCompatible(appContext, useKeypadView, style)) {
+            return;
+        }
+
+        PINMetrics.beginSection(PINMetrics.SECTION_PREWARM);
+        try {
+            LockScreenViews views = new LockScreenViews(appContext, useKeypadView, style, true);
+
+            // layout once, so grid items and their drawables are created now and not on first frame
+            DisplayMetrics metrics = appContext.getResources().getDisplayMetrics();
+            views.root.measure(
+                    View.MeasureSpec.makeMeasureSpec(metrics.widthPixels, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(metrics.heightPixels, View.MeasureSpec.EXACTLY));
+            views.root.layout(0, 0, metrics.widthPixels, metrics.heightPixels);
+            sCached = views;
+        } finally {
+            PINMetrics.endSection();
+        }
+    }
+
+    /**
+     * Returns views to the cache once the lock screen is gone
+     * Only views created with application context are kept
+     *
+     * @param views views to recycle
+     */
+    static void recycle(LockScreenViews views) {
+        views.wrongEntryAnimator.cancel();
+        if (views.mReusable) {
+            views.valueText.setText("");
+            sCached = views;
+        }
+    }
+
+    /**
+     * Drops pre-warmed views, e.g. when memory is low
+     */
+    static void clear() {
+        sCached = null;
+    }
+
+    private boolean isCompatible(Context context, boolean useKeypadView, KeypadStyle style) {
+        return mKeypadMode == useKeypadView
+                && mStyle == style
+                && (mConfiguration.diff(context.getResources().getConfiguration()) & ~IGNORED_CONFIG_CHANGES) == 0;
+    }
+}
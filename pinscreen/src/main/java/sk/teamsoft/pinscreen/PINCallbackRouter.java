@@ -0,0 +1,137 @@
+package sk.teamsoft.pinscreen;
+
+import android.util.SparseArray;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Routes results of single lock screen request
+ * Results go to lifecycle-bound listeners resolved at delivery time (e.g. current hosting Activity)
+ * and to listeners registered for the request, which are only weakly referenced,
+ * so no destroyed Activity is retained and results survive configuration changes
+ * Accessed only from the main thread
+ */
+abstract class PINCallbackRouter implements IPINIdentityListener {
+
+    static final int NO_REQUEST = 0;
+
+    /**
+     * Registered listeners by request id
+     */
+    private static final SparseArray<List<WeakReference<IPINDialogListener>>> sRegistry = new SparseArray<>();
+
+    /**
+     * Seeded randomly, so ids saved by previous process do not match new requests
+     */
+    private static int sNextRequestId = new Random().nextInt();
+
+    private final int mRequestId;
+
+    PINCallbackRouter(int requestId) {
+        mRequestId = requestId;
+    }
+
+    /**
+     * @return id of new request
+     */
+    static int newRequestId() {
+        if (++sNextRequestId == NO_REQUEST) {
+            sNextRequestId++;
+        }
+        return sNextRequestId;
+    }
+
+    /**
+     * Registers listener for results of given request
+     * Only weak reference is kept, caller has to keep listener reachable
+     *
+     * @param requestId request id
+     * @param listener  listener
+     */
+    static void register(int requestId, IPINDialogListener listener) {
+        List<WeakReference<IPINDialogListener>> listeners = sRegistry.get(requestId);
+        if (listeners == null) {
+            listeners = new ArrayList<>(1);
+            sRegistry.put(requestId, listeners);
+        }
+        listeners.add(new WeakReference<>(listener));
+    }
+
+    /**
+     * Drops listeners of the request, lock screen is gone for good
+     *
+     * @param requestId request id
+     */
+    static void release(int requestId) {
+        sRegistry.remove(requestId);
+    }
+
+    int getRequestId() {
+        return mRequestId;
+    }
+
+    /**
+     * Adds listeners bound to the lifecycle of the host, resolved on every delivery
+     *
+     * @param out list to add listeners to
+     */
+    abstract void collectBoundListeners(List<IPINDialogListener> out);
+
+    @Override
+    public void onPINEntered() {
+        for (IPINDialogListener listener : collectListeners()) {
+            listener.onPINEntered();
+        }
+    }
+
+    /**
+     * Listeners not interested in identity get plain {@link #onPINEntered()}
+     */
+    @Override
+    public void onPINEntered(String identity) {
+        for (IPINDialogListener listener : collectListeners()) {
+            if (listener instanceof IPINIdentityListener) {
+                ((IPINIdentityListener) listener).onPINEntered(identity);
+            } else {
+                listener.onPINEntered();
+            }
+        }
+    }
+
+    @Override
+    public void onPINSetup(String pin) {
+        for (IPINDialogListener listener : collectListeners()) {
+            listener.onPINSetup(pin);
+        }
+    }
+
+    @Override
+    public void onWrongEntry() {
+        for (IPINDialogListener listener : collectListeners()) {
+            listener.onWrongEntry();
+        }
+    }
+
+    private List<IPINDialogListener> collectListeners() {
+        List<IPINDialogListener> out = new ArrayList<>(2);
+        collectBoundListeners(out);
+
+        List<WeakReference<IPINDialogListener>> registered = sRegistry.get(mRequestId);
+        if (registered != null) {
+            Iterator<WeakReference<IPINDialogListener>> iterator = registered.iterator();
+            while (iterator.hasNext()) {
+                IPINDialogListener listener = iterator.next().get();
+                if (listener == null) {
+                    iterator.remove();
+                } else if (!out.contains(listener)) {
+                    out.add(listener);
+                }
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,370 @@
+package sk.teamsoft.pinscreen;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Bundle;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+
+import java.util.List;
+
+import sk.teamsoft.pinscreen.core.KeypadLayout;
+
+/**
+ * Keypad drawn as a single view
+ * Alternative to RecyclerView grid - all keys are laid out and drawn in one pass,
+ * touched key is resolved directly from the grid geometry, every finger is tracked separately
+ * Every key is exposed to accessibility services as virtual view, so TalkBack and Switch Access can operate it
+ */
+public class PINKeypadView extends View {
+
+    public interface OnKeyClickListener {
+        /**
+         * Fires when key is tapped
+         *
+         * @param position key position in the grid
+         */
+        void onKeyClick(int position);
+    }
+
+    private static final int COLUMNS = 3;
+    private static final int NO_KEY = KeypadTouchHandler.NO_KEY;
+
+    private KeypadLayout mLayout;
+    private int mRows = 0;
+    private float mTextSize;
+    private float mSmallTextSize;
+
+    private final float mKeyHeight;
+    private final float mKeyMargin;
+    private float mCornerRadius;
+
+    private final Paint mDefaultPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mPressedPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mDefaultBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mPressedBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mKeyRect = new RectF();
+
+    private float mCellWidth;
+    private float mCellHeight;
+    private boolean[] mPressedKeys = new boolean[0];
+    private final KeypadTouchHandler mTouchHandler = new KeypadTouchHandler(new KeypadTouchHandler.Target() {
+        @Override
+        public int keyAt(float x, float y) {
+            return PINKeypadView.this.keyAt(x, y);
+        }
+
+        @Override
+        public void setKeyPressed(int position, boolean pressed) {
+            PINKeypadView.this.setKeyPressed(position, pressed);
+        }
+
+        @Override
+        public void onKeyClick(int position) {
+            clickKey(position);
+        }
+    });
+    private final KeypadAccessibilityHelper mAccessibilityHelper;
+    private OnKeyClickListener mListener;
+
+    public PINKeypadView(Context context) {
+        this(context, null);
+    }
+
+    public PINKeypadView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+
+        float dp = getResources().getDisplayMetrics().density;
+        mKeyHeight = getResources().getDimension(R.dimen.pinscreen_grid_item_size);
+        mKeyMargin = getResources().getDimension(R.dimen.pinscreen_grid_margin);
+        mCornerRadius = 3f * dp;
+        mTextSize = getResources().getDimension(R.dimen.pinscreen_text_size);
+        mSmallTextSize = getResources().getDimension(R.dimen.pinscreen_smaller_text_size);
+
+        mDefaultPaint.setStyle(Paint.Style.FILL);
+        mDefaultPaint.setColor(Color.TRANSPARENT);
+        mPressedPaint.setStyle(Paint.Style.FILL);
+        mPressedPaint.setColor(Color.argb(80, 0, 0, 0));
+
+        mDefaultBorderPaint.setStyle(Paint.Style.STROKE);
+        mDefaultBorderPaint.setStrokeWidth(1);
+        mDefaultBorderPaint.setColor(Color.argb(30, 0, 0, 0));
+        mPressedBorderPaint.setStyle(Paint.Style.STROKE);
+        mPressedBorderPaint.setStrokeWidth(1);
+        mPressedBorderPaint.setColor(Color.argb(80, 0, 0, 0));
+
+        mTextPaint.setTextAlign(Paint.Align.CENTER);
+        mTextPaint.setColor(0xff333333);
+
+        mAccessibilityHelper = new KeypadAccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+    }
+
+    /**
+     * Sets keys to display, laid out in rows of 3
+     * If key count stays the same, only keys whose code changed are redrawn
+     *
+     * @param layout keypad layout
+     */
+    public void setLayout(KeypadLayout layout) {
+        KeypadLayout old = mLayout;
+        mLayout = layout;
+        if (old != null && old.size() == layout.size()) {
+            for (int i = 0; i < layout.size(); i++) {
+                if (old.getKeyCode(i) != layout.getKeyCode(i)) {
+                    invalidateKey(i);
+                    mAccessibilityHelper.invalidateVirtualView(i);
+                }
+            }
+            return;
+        }
+
+        mRows = (layout.size() + COLUMNS - 1) / COLUMNS;
+        mTouchHandler.cancel();
+        mPressedKeys = new boolean[layout.size()];
+        requestLayout();
+        invalidate();
+        mAccessibilityHelper.invalidateRoot();
+    }
+
+    /**
+     * Applies resolved keypad style to the key paints
+     *
+     * @param style keypad style
+     */
+    public void setStyle(KeypadStyle style) {
+        mDefaultPaint.setColor(style.getKeyColor());
+        mPressedPaint.setColor(style.getPressedKeyColor());
+        mDefaultBorderPaint.setColor(style.getBorderColor());
+        mDefaultBorderPaint.setStrokeWidth(style.getStrokeWidth());
+        mPressedBorderPaint.setColor(style.getPressedBorderColor());
+        mPressedBorderPaint.setStrokeWidth(style.getStrokeWidth());
+        mTextPaint.setColor(style.getTextColor());
+        mCornerRadius = style.getCornerRadius();
+        mTextSize = style.getTextSize();
+        mSmallTextSize = style.getSmallTextSize();
+        invalidate();
+    }
+
+    /**
+     * Sets background color of pressed key
+     *
+     * @param color pressed color
+     */
+    public void setActiveColor(int color) {
+        mPressedPaint.setColor(color);
+        invalidate();
+    }
+
+    public void setOnKeyClickListener(OnKeyClickListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Clicks keys as soon as they are touched instead of when finger lifts
+     * Disabled by default, pressed state is shown in both modes
+     *
+     * @param activateOnDown true to activate keys on touch down
+     */
+    public void setActivateOnDown(boolean activateOnDown) {
+        mTouchHandler.setActivateOnDown(activateOnDown);
+    }
+
+    /**
+     * @return uptime of touch down which started the last delivered key click
+     */
+    public long getLastDownTime() {
+        return mTouchHandler.getLastDownTime();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getDefaultSize(getSuggestedWidth(), widthMeasureSpec);
+        int desiredHeight = (int) (mRows * (mKeyHeight + 2 * mKeyMargin))
+                + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize(desiredHeight, heightMeasureSpec));
+    }
+
+    private int getSuggestedWidth() {
+        return (int) (COLUMNS * (mKeyHeight + 2 * mKeyMargin)) + getPaddingLeft() + getPaddingRight();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mCellWidth = (float) (w - getPaddingLeft() - getPaddingRight()) / COLUMNS;
+        mCellHeight = mRows > 0 ? (float) (h - getPaddingTop() - getPaddingBottom()) / mRows : 0;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mLayout == null) {
+            return;
+        }
+
+        for (int i = 0; i < mLayout.size(); i++) {
+            setKeyRect(i);
+            boolean pressed = mPressedKeys[i];
+
+            canvas.drawRoundRect(mKeyRect, mCornerRadius, mCornerRadius,
+                    pressed ? mPressedPaint : mDefaultPaint);
+            canvas.drawRoundRect(mKeyRect, mCornerRadius, mCornerRadius,
+                    pressed ? mPressedBorderPaint : mDefaultBorderPaint);
+
+            // submit and back have smaller font-size
+            mTextPaint.setTextSize(KeypadLayout.isDigit(mLayout.getKeyCode(i)) ? mTextSize : mSmallTextSize);
+            float baseline = mKeyRect.centerY() - (mTextPaint.ascent() + mTextPaint.descent()) / 2;
+            canvas.drawText(mLayout.getLabel(i), mKeyRect.centerX(), baseline, mTextPaint);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean tracking = mTouchHandler.onTouchEvent(event);
+        // keep receiving the gesture while any finger is on a key
+        return tracking || event.getActionMasked() != MotionEvent.ACTION_DOWN;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return mAccessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mTouchHandler.cancel();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Resolves key under given coordinates in constant time
+     *
+     * @return key position or {@link #NO_KEY}
+     */
+    private int keyAt(float x, float y) {
+        if (mCellWidth <= 0 || mCellHeight <= 0) {
+            return NO_KEY;
+        }
+
+        float localX = x - getPaddingLeft();
+        float localY = y - getPaddingTop();
+        if (localX < 0 || localY < 0) {
+            return NO_KEY;
+        }
+
+        int column = (int) (localX / mCellWidth);
+        int row = (int) (localY / mCellHeight);
+        int position = row * COLUMNS + column;
+        return column < COLUMNS && row < mRows && mLayout != null && position < mLayout.size() ? position : NO_KEY;
+    }
+
+    private void clickKey(int position) {
+        if (mListener != null) {
+            playSoundEffect(SoundEffectConstants.CLICK);
+            mListener.onKeyClick(position);
+        }
+    }
+
+    /**
+     * Changes pressed state of single key and invalidates only that key
+     */
+    private void setKeyPressed(int position, boolean pressed) {
+        if (position < mPressedKeys.length && mPressedKeys[position] != pressed) {
+            mPressedKeys[position] = pressed;
+            invalidateKey(position);
+        }
+    }
+
+    private void invalidateKey(int position) {
+        if (position != NO_KEY) {
+            setKeyRect(position);
+            invalidate((int) mKeyRect.left - 1, (int) mKeyRect.top - 1,
+                    (int) mKeyRect.right + 1, (int) mKeyRect.bottom + 1);
+        }
+    }
+
+    private void setKeyRect(int position) {
+        float left = getPaddingLeft() + (position % COLUMNS) * mCellWidth;
+        float top = getPaddingTop() + (position / COLUMNS) * mCellHeight;
+        mKeyRect.set(left + mKeyMargin, top + mKeyMargin,
+                left + mCellWidth - mKeyMargin, top + mCellHeight - mKeyMargin);
+    }
+
+    /**
+     * Exposes keys as virtual views, one per key position
+     */
+    private class KeypadAccessibilityHelper extends ExploreByTouchHelper {
+        private final Rect mBounds = new Rect();
+
+        KeypadAccessibilityHelper(View host) {
+            super(host);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int position = keyAt(x, y);
+            return position != NO_KEY ? position : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0; mLayout != null && i < mLayout.size(); i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+            event.setContentDescription(getKeyDescription(virtualViewId));
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            node.setContentDescription(getKeyDescription(virtualViewId));
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            node.setClickable(true);
+
+            setKeyRect(virtualViewId);
+            mKeyRect.round(mBounds);
+            node.setBoundsInParent(mBounds);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK) {
+                return false;
+            }
+            clickKey(virtualViewId);
+            sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+            return true;
+        }
+
+        /**
+         * Functional keys are described by words, their labels are symbols
+         */
+        private CharSequence getKeyDescription(int position) {
+            if (mLayout == null || position >= mLayout.size()) {
+                return "";
+            }
+            switch (mLayout.getKeyCode(position)) {
+                case KeypadLayout.KEY_BACK:
+                    return getResources().getString(R.string.pinscreen_key_back_description);
+                case KeypadLayout.KEY_SUBMIT:
+                    return getResources().getString(R.string.pinscreen_key_submit_description);
+                default:
+                    return mLayout.getLabel(position);
+            }
+        }
+    }
+}
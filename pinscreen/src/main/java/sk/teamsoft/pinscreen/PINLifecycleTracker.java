@@ -0,0 +1,72 @@
+package sk.teamsoft.pinscreen;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tracks whether any Activity of the app is started
+ * Started Activities are tracked one by one, so Activities started before tracking was installed
+ * are never counted, neither when started nor when stopped
+ * Updated on the main thread, every lifecycle event costs O(1)
+ * Requires API 14
+ */
+class PINLifecycleTracker implements Application.ActivityLifecycleCallbacks {
+
+    private final PINScreenManager mManager;
+    /**
+     * Activities between start and stop, there are only a few of them and they are removed once stopped
+     */
+    private final Set<Activity> mStarted = new HashSet<>();
+
+    PINLifecycleTracker(PINScreenManager manager) {
+        mManager = manager;
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+        if (mStarted.add(activity) && mStarted.size() == 1) {
+            // app came to foreground, lock is applied if the delay elapsed meanwhile
+            mManager.cancelDelayedLock();
+        }
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+        if (!mStarted.remove(activity)) {
+            // tracking was installed after this activity was started
+            return;
+        }
+
+        // next Activity is started before the previous one is stopped,
+        // so count drops to zero only when app goes to background
+        if (mStarted.isEmpty() && !activity.isChangingConfigurations()) {
+            mManager.lockWithDelay();
+        }
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+        // never retain an Activity, even if its stop was not reported
+        mStarted.remove(activity);
+    }
+}
@@ -0,0 +1,112 @@
+package sk.teamsoft.pinscreen;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+
+/**
+ * Dispatches metrics to registered {@link IPINMetricsListener} and emits systrace sections
+ * Nothing is allocated when no listener is registered
+ */
+final class PINMetrics {
+
+    static final String SECTION_SHOW = "PINScreen:show";
+    static final String SECTION_KEY = "PINScreen:key";
+    static final String SECTION_VERIFY = "PINScreen:verify";
+    static final String SECTION_PREWARM = "PINScreen:prewarm";
+
+    private static final boolean TRACE_SUPPORTED =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private static volatile IPINMetricsListener sListener;
+    /**
+     * Uptime of the last lock screen request, main thread only
+     */
+    private static long sShowRequestTime = 0;
+
+    private PINMetrics() {
+    }
+
+    static void setListener(IPINMetricsListener listener) {
+        sListener = listener;
+    }
+
+    /**
+     * @return true if metrics are collected, so callers can skip taking timestamps
+     */
+    static boolean isEnabled() {
+        return sListener != null;
+    }
+
+    /**
+     * Marks that lock screen was requested, first frame latency is measured from now
+     */
+    static void markShowRequested() {
+        if (sListener != null) {
+            sShowRequestTime = SystemClock.uptimeMillis();
+        }
+    }
+
+    /**
+     * @return uptime of pending lock screen request, or 0 if there is none
+     */
+    static long takeShowRequestTime() {
+        long time = sShowRequestTime;
+        sShowRequestTime = 0;
+        return time;
+    }
+
+    static void beginSection(String name) {
+        if (TRACE_SUPPORTED) {
+            Trace.beginSection(name);
+        }
+    }
+
+    static void endSection() {
+        if (TRACE_SUPPORTED) {
+            Trace.endSection();
+        }
+    }
+
+    static void lockShown(long latencyMillis) {
+        IPINMetricsListener listener = sListener;
+        if (listener != null) {
+            listener.onLockShown(latencyMillis);
+        }
+    }
+
+    static void keyHandled(long latencyMillis) {
+        IPINMetricsListener listener = sListener;
+        if (listener != null) {
+            listener.onKeyHandled(latencyMillis);
+        }
+    }
+
+    static void verified(long latencyMillis, boolean correct) {
+        IPINMetricsListener listener = sListener;
+        if (listener != null) {
+            listener.onVerified(latencyMillis, correct);
+        }
+    }
+
+    static void wrongEntry(int count) {
+        IPINMetricsListener listener = sListener;
+        if (listener != null) {
+            listener.onWrongEntry(count);
+        }
+    }
+
+    static void wrongEntryAnimated(long durationMillis, int droppedFrames) {
+        IPINMetricsListener listener = sListener;
+        if (listener != null) {
+            listener.onWrongEntryAnimated(durationMillis, droppedFrames);
+        }
+    }
+
+    static void lockDelayElapsed(long expectedMillis, long actualMillis) {
+        IPINMetricsListener listener = sListener;
+        if (listener != null) {
+            listener.onLockDelayElapsed(expectedMillis, actualMillis);
+        }
+    }
+}
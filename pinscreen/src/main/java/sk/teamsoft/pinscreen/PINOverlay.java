@@ -0,0 +1,242 @@
+package sk.teamsoft.pinscreen;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.KeyEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.List;
+
+import sk.teamsoft.pinscreen.core.IKeypadLayoutProvider;
+import sk.teamsoft.pinscreen.core.IPINVerifier;
+
+/**
+ * Lock screen attached directly to the Activity decor view
+ * Lightweight alternative to {@link PINScreen} dialog - shown synchronously,
+ * without FragmentManager transaction
+ * Overlay does not survive Activity recreation, ask for PIN again in {@code onResume}
+ * Overlay which leaves the window together with its Activity is dismissed, so its unlock request completes,
+ * on API below 12 call {@link #dismiss()} from {@code onDestroy} instead
+ */
+public class PINOverlay implements LockScreenController.Host {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final Activity mActivity;
+    /**
+     * Delivers results to hosting Activity and listeners registered for this overlay
+     */
+    private final PINCallbackRouter mRouter;
+    private final LockScreenController mController = new LockScreenController(this);
+    private final boolean mUseKeypadView;
+
+    private LockScreenViews mViews;
+    private boolean mCancelable = false;
+    private DetachListener mDetachListener;
+
+    /**
+     * Dismisses overlay whose views left the window without being dismissed
+     */
+    private final Runnable mDismissDetached = new Runnable() {
+        @Override
+        public void run() {
+            dismiss();
+        }
+    };
+
+    private final View.OnKeyListener mKeyListener = new View.OnKeyListener() {
+        @Override
+        public boolean onKey(View v, int keyCode, KeyEvent event) {
+            if (keyCode != KeyEvent.KEYCODE_BACK) {
+                // hardware keypad digits, DEL and ENTER
+                return mController.onKeyEvent(keyCode, event);
+            }
+            // back is always consumed, non-cancelable overlay must not reveal the content
+            if (mCancelable && event.getAction() == KeyEvent.ACTION_UP) {
+                dismiss();
+            }
+            return true;
+        }
+    };
+
+    private PINOverlay(Activity activity, boolean useKeypadView) {
+        mActivity = activity;
+        mUseKeypadView = useKeypadView;
+        mRouter = new PINCallbackRouter(PINCallbackRouter.newRequestId()) {
+            @Override
+            void collectBoundListeners(List<IPINDialogListener> out) {
+                if (mActivity instanceof IPINDialogListener) {
+                    out.add((IPINDialogListener) mActivity);
+                }
+            }
+        };
+    }
+
+    /**
+     * Shows overlay on top of Activity content, or returns the one which is already shown
+     *
+     * @param activity      hosting activity, receives results if it implements {@link IPINDialogListener}
+     * @param useKeypadView true to use custom-drawn keypad
+     *
+     * @return overlay handle
+     */
+    static PINOverlay show(Activity activity, boolean useKeypadView) {
+        ViewGroup decor = (ViewGroup) activity.getWindow().getDecorView();
+        View existing = decor.findViewById(R.id.pinscreen_overlay);
+        if (existing != null && existing.getTag() instanceof PINOverlay) {
+            return (PINOverlay) existing.getTag();
+        }
+
+        PINMetrics.markShowRequested();
+        PINOverlay overlay = new PINOverlay(activity, useKeypadView);
+        overlay.attach(decor);
+        return overlay;
+    }
+
+    private void attach(ViewGroup decor) {
+        // pre-warmed views are reused if available, see PINScreenManager#prewarm
+        mViews = LockScreenViews.obtain(mActivity, mUseKeypadView);
+        mController.bind(mViews, mActivity);
+
+        View root = mViews.root;
+        root.setId(R.id.pinscreen_overlay);
+        root.setTag(this);
+        // swallow touches, content below must stay unreachable
+        root.setClickable(true);
+        root.setFocusable(true);
+        root.setFocusableInTouchMode(true);
+        root.setOnKeyListener(mKeyListener);
+
+        decor.addView(root, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        root.requestFocus();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+            mDetachListener = new DetachListener();
+            root.addOnAttachStateChangeListener(mDetachListener);
+        }
+    }
+
+    /**
+     * @see PINScreen#enterDigits(CharSequence)
+     */
+    public int enterDigits(CharSequence digits) {
+        return mController.enterDigits(digits);
+    }
+
+    /**
+     * Registers additional receiver of results, e.g. non-Activity component
+     * Only weak reference is kept, caller has to keep listener reachable
+     *
+     * @param listener listener
+     */
+    public void addListener(IPINDialogListener listener) {
+        PINCallbackRouter.register(mRouter.getRequestId(), listener);
+    }
+
+    /**
+     * Updates lock screen settings all at once
+     *
+     * @param verifier     verifier to check user entry with
+     * @param isCancelable can overlay be closed by back key
+     * @param isSetup      is overlay for setting up the first PIN
+     */
+    public void updateSettings(IPINVerifier verifier, Boolean isCancelable, boolean isSetup) {
+        if (isCancelable != null) {
+            mCancelable = isCancelable;
+        }
+        mController.updateSettings(verifier, isSetup);
+    }
+
+    /**
+     * @see PINScreen#setAutoSubmit(boolean)
+     */
+    public void setAutoSubmit(boolean autoSubmit) {
+        mController.setAutoSubmit(autoSubmit);
+    }
+
+    /**
+     * @see PINScreen#setActivateOnDown(boolean)
+     */
+    public void setActivateOnDown(boolean activateOnDown) {
+        mController.setActivateOnDown(activateOnDown);
+    }
+
+    /**
+     * @see PINScreen#setKeypadLayout(IKeypadLayoutProvider)
+     */
+    public void setKeypadLayout(IKeypadLayoutProvider provider) {
+        mController.setKeypadLayout(provider);
+    }
+
+    /**
+     * @return true if overlay is attached
+     */
+    public boolean isShowing() {
+        return mViews != null;
+    }
+
+    /**
+     * Removes overlay and wipes entered value
+     */
+    public void dismiss() {
+        sMainHandler.removeCallbacks(mDismissDetached);
+        LockScreenViews views = mController.unbind();
+        mController.destroy();
+        mViews = null;
+        if (views == null) {
+            return;
+        }
+        if (mDetachListener != null) {
+            views.root.removeOnAttachStateChangeListener(mDetachListener);
+            mDetachListener = null;
+        }
+
+        PINCallbackRouter.release(mRouter.getRequestId());
+        PINScreenManager.getInstance().onLockScreenClosed();
+
+        View root = views.root;
+        root.setOnKeyListener(null);
+        root.setTag(null);
+        root.setId(View.NO_ID);
+        ViewGroup parent = (ViewGroup) root.getParent();
+        if (parent != null) {
+            parent.removeView(root);
+        }
+        LockScreenViews.recycle(views);
+    }
+
+    @Override
+    public IPINDialogListener getListener() {
+        return mViews != null ? mRouter : null;
+    }
+
+    @Override
+    public boolean isInteractive() {
+        return mViews != null;
+    }
+
+    @Override
+    public void close() {
+        dismiss();
+    }
+
+    /**
+     * Notices overlay going away with the window of its Activity, e.g. on rotation or finish
+     * Dismiss is posted, views must not be removed while the window dispatches detach
+     */
+    private class DetachListener implements View.OnAttachStateChangeListener {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            sMainHandler.removeCallbacks(mDismissDetached);
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            sMainHandler.post(mDismissDetached);
+        }
+    }
+}
@@ -2,25 +2,27 @@ package sk.teamsoft.pinscreen;
 
 import android.app.Dialog;
 import android.content.Context;
-import android.graphics.Color;
+import android.content.DialogInterface;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.GradientDrawable;
-import android.graphics.drawable.StateListDrawable;
 import android.os.Build;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.v4.app.DialogFragment;
 import android.support.v4.app.FragmentManager;
-import android.support.v4.content.ContextCompat;
-import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.util.TypedValue;
+import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import java.util.Arrays;
+import java.util.List;
+
+import sk.teamsoft.pinscreen.core.IKeypadLayoutProvider;
+import sk.teamsoft.pinscreen.core.IPINVerifier;
+import sk.teamsoft.pinscreen.core.KeypadLayout;
+import sk.teamsoft.pinscreen.core.PlainPINVerifier;
 
 /**
  * PINScreen component
@@ -29,40 +31,68 @@ import java.util.Arrays;
  * @author Dusan Bartos
  */
 @SuppressWarnings("unused")
-public class PINScreen extends DialogFragment implements RecyclerItemClickListener.OnItemClickListener {
+public class PINScreen extends DialogFragment implements LockScreenController.Host {
 
     protected static final String FRAGMENT_TAG = "sk_teamsoft_pinscreen_lock_fragment";
 
-    private static final String BUNDLE_REAL_VALUE = "realVal";
-    private static final String BUNDLE_CURRENT_VALUE = "val";
-    private static final String BUNDLE_CANCELABLE = "cancelable";
-    private static final String BUNDLE_SETUP = "setup";
-    private static final String BUNDLE_MAXLENGTH = "maxLength";
+    private static final String BUNDLE_REQUEST_ID = "requestId";
+    private static final String BUNDLE_SETTINGS = "settings";
+
+    /**
+     * Settings packed into single int, maximum length is kept above the flags
+     */
+    private static final int SETTING_CANCELABLE = 1;
+    private static final int SETTING_SETUP = 1 << 1;
+    private static final int SETTING_AUTO_SUBMIT = 1 << 2;
+    private static final int SETTING_KEYPAD_VIEW = 1 << 3;
+    private static final int SETTING_ACTIVATE_ON_DOWN = 1 << 4;
+    private static final int SETTING_MAX_LENGTH_SHIFT = 8;
 
-    // empty initial listener
-    private static IPINDialogListener mListener;
     private static int sActiveColor = -1;
+    private static boolean sActiveColorSet = false;
 
+    /**
+     * Overrides pressed key color of the keypad style
+     *
+     * @param color pressed key color
+     * @see KeypadStyle
+     */
     public static void setActiveColor(int color) {
         sActiveColor = color;
+        sActiveColorSet = true;
     }
 
     /**
-     * Maximum PIN length
-     * 4 by default
-     * Can be changed via {@link #setMaxLength(int)}
+     * Resolves keypad style of the context theme, with pressed color override applied
+     *
+     * @param context themed context
+     *
+     * @return cached style
      */
-    private int mMaxLength = 4;
+    static KeypadStyle resolveStyle(Context context) {
+        KeypadStyle style = KeypadStyle.obtain(context);
+        return sActiveColorSet ? style.withPressedColor(sActiveColor) : style;
+    }
 
     private boolean mCancelable = false;
-    private boolean mSetup = false;
-    private CharSequence mRealValue;
-    private StringBuilder mValue = new StringBuilder("");
-    private TextView mValueTextView;
+    private boolean mUseKeypadView = false;
+
+    /**
+     * Entry logic, shared with overlay host
+     * Top-level instance is retained, so entry state survives configuration changes without being parcelled
+     */
+    private final LockScreenController mController = new LockScreenController(this);
 
-    private RecyclerView mNumbersGridView;
-    private LockGridAdapter mAdapter;
-    private RecyclerItemClickListener mItemClickListener;
+    /**
+     * Views kept across configuration change, re-attached to the recreated dialog
+     */
+    private LockScreenViews mViews;
+
+    /**
+     * Delivers results to hosting Activity, target fragment and listeners registered for this request
+     */
+    private int mRequestId = PINCallbackRouter.NO_REQUEST;
+    private PINCallbackRouter mRouter;
 
     /**
      * Creates new instance of PIN screen and shows it
@@ -73,6 +103,7 @@ public class PINScreen extends DialogFragment implements RecyclerItemClickListen
      */
     protected static PINScreen show(FragmentManager fm) {
         PINScreen dialog = new PINScreen();
+        dialog.mRequestId = PINCallbackRouter.newRequestId();
         dialog.show(fm, FRAGMENT_TAG);
         return dialog;
     }
@@ -94,16 +125,67 @@ public class PINScreen extends DialogFragment implements RecyclerItemClickListen
      * @param length maximum pin length
      */
     public void setMaxLength(int length) {
-        mMaxLength = length;
+        mController.setMaxLength(length);
+    }
+
+    /**
+     * Sets whether PIN is submitted automatically when the last digit is entered
+     * Has no effect in setup mode
+     *
+     * @param autoSubmit true to skip OK button
+     */
+    public void setAutoSubmit(boolean autoSubmit) {
+        mController.setAutoSubmit(autoSubmit);
+    }
+
+    /**
+     * Sets whether keys are activated on touch down instead of when finger lifts
+     *
+     * @param activateOnDown true to activate keys on touch down
+     */
+    public void setActivateOnDown(boolean activateOnDown) {
+        mController.setActivateOnDown(activateOnDown);
+    }
+
+    /**
+     * Sets whether keys are drawn by single {@link PINKeypadView}
+     * instead of RecyclerView grid
+     * Has to be called before the view is created
+     *
+     * @param useKeypadView true to use custom-drawn keypad
+     */
+    public void setUseKeypadView(boolean useKeypadView) {
+        mUseKeypadView = useKeypadView;
+    }
+
+    /**
+     * Sets provider of keypad layout, asked every time the lock screen is shown
+     *
+     * @param provider layout provider, e.g. {@link KeypadLayout#SCRAMBLED_PROVIDER}
+     */
+    public void setKeypadLayout(IKeypadLayoutProvider provider) {
+        mController.setKeypadLayout(provider);
     }
 
     /**
      * Sets real PIN value to compare with
      *
      * @param realPIN real PIN value
+     * @deprecated plaintext PIN is kept in memory, use {@link #setVerifier(IPINVerifier)}
      */
+    @Deprecated
     public void setRealValue(CharSequence realPIN) {
-        mRealValue = realPIN;
+        mController.setVerifier(new PlainPINVerifier(realPIN));
+    }
+
+    /**
+     * Sets verifier to check entered PIN with
+     * Verification runs on background thread
+     *
+     * @param verifier PIN verifier
+     */
+    public void setVerifier(IPINVerifier verifier) {
+        mController.setVerifier(verifier);
     }
 
     /**
@@ -113,7 +195,7 @@ public class PINScreen extends DialogFragment implements RecyclerItemClickListen
      * @param isSetup true to be in setup mode
      */
     public void setSetup(boolean isSetup) {
-        mSetup = isSetup;
+        mController.setSetup(isSetup);
     }
 
     /**
@@ -124,258 +206,274 @@ public class PINScreen extends DialogFragment implements RecyclerItemClickListen
      * @param isSetup      is dialog for setting up the first PIN
      */
     public void updateSettings(String realPIN, Boolean isCancelable, boolean isSetup) {
-        setRealValue(realPIN);
+        updateSettings(new PlainPINVerifier(realPIN), isCancelable, isSetup);
+    }
+
+    /**
+     * Updates lock screen settings all at once
+     *
+     * @param verifier     verifier to check user entry with
+     * @param isCancelable is lock dialog cancellable
+     * @param isSetup      is dialog for setting up the first PIN
+     */
+    public void updateSettings(IPINVerifier verifier, Boolean isCancelable, boolean isSetup) {
         if (isCancelable != null) {
             setCancelableDialog(isCancelable);
         }
-        setSetup(isSetup);
-        if (!isSetup) {
-            mMaxLength = realPIN.length();
-        }
+        mController.updateSettings(verifier, isSetup);
     }
 
     /**
      * Make this dialog fullscreen
+     * Top-level instance is retained, so this runs again only after the process was killed,
+     * entered value is not restored then
+     * Nested fragments cannot be retained, lock screen shown by child fragment manager is recreated
+     * on configuration change and starts with empty value
      *
      * @param savedInstanceState saved state
      */
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        setRetainInstance(getParentFragment() == null);
 
         if (savedInstanceState != null) {
-            mMaxLength = savedInstanceState.getInt(BUNDLE_MAXLENGTH);
-            mRealValue = savedInstanceState.getString(BUNDLE_REAL_VALUE);
-            mCancelable = savedInstanceState.getBoolean(BUNDLE_CANCELABLE);
-            mSetup = savedInstanceState.getBoolean(BUNDLE_SETUP);
-            mValue = new StringBuilder();
-            mValue.append(savedInstanceState.getString(BUNDLE_CURRENT_VALUE));
+            mRequestId = savedInstanceState.getInt(BUNDLE_REQUEST_ID);
+            int settings = savedInstanceState.getInt(BUNDLE_SETTINGS);
+            mController.setMaxLength(settings >>> SETTING_MAX_LENGTH_SHIFT);
+            // verifier is never parcelled, take it from the manager again
+            mController.setVerifier(PINScreenManager.getInstance().getPINVerifier());
+            mController.setKeypadLayout(PINScreenManager.getInstance().getKeypadLayout());
+            mCancelable = (settings & SETTING_CANCELABLE) != 0;
+            mController.setSetup((settings & SETTING_SETUP) != 0);
+            mController.setAutoSubmit((settings & SETTING_AUTO_SUBMIT) != 0);
+            mController.setActivateOnDown((settings & SETTING_ACTIVATE_ON_DOWN) != 0);
+            mUseKeypadView = (settings & SETTING_KEYPAD_VIEW) != 0;
         }
 
+        mRouter = new PINCallbackRouter(mRequestId) {
+            @Override
+            void collectBoundListeners(List<IPINDialogListener> out) {
+                if (getActivity() instanceof IPINDialogListener) {
+                    out.add((IPINDialogListener) getActivity());
+                }
+                if (getTargetFragment() instanceof IPINDialogListener) {
+                    out.add((IPINDialogListener) getTargetFragment());
+                }
+            }
+        };
+
         setStyle(DialogFragment.STYLE_NORMAL, android.R.style.Theme_Light_NoTitleBar_Fullscreen);
     }
 
+    /**
+     * Enters several digits at once, e.g. from automation or accessibility service
+     * Value is updated immediately and rendered once on the next frame
+     *
+     * @param digits digits to enter, other characters are skipped
+     *
+     * @return number of digits which changed the entered value
+     */
+    public int enterDigits(CharSequence digits) {
+        return mController.enterDigits(digits);
+    }
+
+    /**
+     * Registers additional receiver of results, e.g. non-Activity component
+     * Only weak reference is kept, caller has to keep listener reachable
+     * Registration survives recreation of the dialog
+     *
+     * @param listener listener
+     */
+    public void addListener(IPINDialogListener listener) {
+        PINCallbackRouter.register(mRequestId, listener);
+    }
+
+    /**
+     * @return id of the request this lock screen belongs to
+     */
+    int getRequestId() {
+        return mRequestId;
+    }
+
     @NonNull
     @Override
     public Dialog onCreateDialog(Bundle savedInstanceState) {
         Dialog dialog = super.onCreateDialog(savedInstanceState);
         this.setCancelable(mCancelable);
+        // hardware keys reach the keypad whichever view has focus
+        dialog.setOnKeyListener(new DialogInterface.OnKeyListener() {
+            @Override
+            public boolean onKey(DialogInterface dialog, int keyCode, KeyEvent event) {
+                return mController.onKeyEvent(keyCode, event);
+            }
+        });
         return dialog;
     }
 
+    /**
+     * Views kept from before configuration change are re-attached, otherwise
+     * pre-warmed views are reused if available, see PINScreenManager#prewarm
+     */
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
-        View layoutView = inflater.inflate(R.layout.lock_screen, container);
-
-        mValueTextView = (TextView) layoutView.findViewById(R.id.pin_value);
-        mNumbersGridView = (RecyclerView) layoutView.findViewById(R.id.numbers_grid);
+        if (mViews == null || !mViews.canReuse(getActivity(), mUseKeypadView)) {
+            mViews = LockScreenViews.obtain(getActivity(), mUseKeypadView);
+        }
+        mViews.detachFromParent();
+        mController.bind(mViews, getActivity());
+        return mViews.root;
+    }
 
-        if (mValueTextView == null || mNumbersGridView == null) {
-            throw new AssertionError("Lock screen has invalid layout");
+    /**
+     * Unbinds views, retained instance keeps them for the recreated dialog,
+     * otherwise they are returned to the pre-warm cache
+     */
+    @Override
+    public void onDestroyView() {
+        // dialog of retained fragment must not dismiss the fragment, it is only being recreated
+        if (getDialog() != null && getRetainInstance()) {
+            getDialog().setDismissMessage(null);
         }
+        super.onDestroyView();
 
-        // set value and hint
-        if (mSetup) {
-            mValueTextView.setHint(R.string.pinscreen_setup_pin_hint);
+        LockScreenViews views = mController.unbind();
+        if (views == null) {
+            return;
+        }
+        if (getRetainInstance() && getActivity() != null && getActivity().isChangingConfigurations()
+                && views.isReusable()) {
+            // old dialog must not be retained through its content
+            views.detachFromParent();
         } else {
-            mValueTextView.setHint(R.string.pinscreen_pin_hint_default);
+            LockScreenViews.recycle(views);
+            mViews = null;
         }
-        refreshValueText();
-
-        // initialize numbers grid
-        mItemClickListener = new RecyclerItemClickListener(getActivity(), this);
-        mAdapter = new LockGridAdapter(getActivity(), sActiveColor);
-        mNumbersGridView.setLayoutManager(new GridLayoutManager(getActivity(), 3));
-        mNumbersGridView.setAdapter(mAdapter);
-        mNumbersGridView.setHasFixedSize(true);
-        mNumbersGridView.addOnItemTouchListener(mItemClickListener);
-
-        return layoutView;
     }
 
     /**
-     * Save values to Bundle when changing orientation
+     * Only small token is saved, entry state stays in retained instance
+     * and entered value is never parcelled
      *
      * @param outState state
      */
     @Override
     public void onSaveInstanceState(Bundle outState) {
-        outState.putString(BUNDLE_REAL_VALUE, mRealValue != null ? mRealValue.toString() : "");
-        outState.putString(BUNDLE_CURRENT_VALUE, mValue.toString());
-        outState.putBoolean(BUNDLE_CANCELABLE, mCancelable);
-        outState.putBoolean(BUNDLE_SETUP, mSetup);
-        outState.putInt(BUNDLE_MAXLENGTH, mMaxLength);
+        int settings = mController.getMaxLength() << SETTING_MAX_LENGTH_SHIFT;
+        if (mCancelable) {
+            settings |= SETTING_CANCELABLE;
+        }
+        if (mController.isSetup()) {
+            settings |= SETTING_SETUP;
+        }
+        if (mController.isAutoSubmit()) {
+            settings |= SETTING_AUTO_SUBMIT;
+        }
+        if (mUseKeypadView) {
+            settings |= SETTING_KEYPAD_VIEW;
+        }
+        if (mController.isActivateOnDown()) {
+            settings |= SETTING_ACTIVATE_ON_DOWN;
+        }
+        outState.putInt(BUNDLE_REQUEST_ID, mRequestId);
+        outState.putInt(BUNDLE_SETTINGS, settings);
 
         super.onSaveInstanceState(outState);
     }
 
     @Override
-    public void onItemClick(View view, int position) {
-        if (getDialog() != null) {
-            // do whatever
-            switch (mAdapter.getItemType(position)) {
-                // char clicked, append it to the value
-                case LockGridValues.NUMBER_TYPE:
-                    if (mValue.length() < mMaxLength) {
-                        mValue.append(mAdapter.getItem(position));
-                        refreshValueText();
-                    }
-                    break;
-
-                // delete the last character from PIN
-                case LockGridValues.BACK_TYPE:
-                    if (mValue.length() > 0) {
-                        mValue.deleteCharAt(mValue.length() - 1);
-                    }
-                    refreshValueText();
-                    break;
-
-                // submit entered PIN and clear the value
-                case LockGridValues.SUBMIT_TYPE:
-                    submitPIN();
-                    mValue = new StringBuilder("");
-                    break;
-            }
-        }
+    public IPINDialogListener getListener() {
+        return isAdded() ? mRouter : null;
     }
 
-    /**
-     * Mask currently entered PIN with asterisk signs
-     */
-    private void refreshValueText() {
-        char[] maskedCode = new char[mValue.length()];
-        Arrays.fill(maskedCode, '*');
-        mValueTextView.setText(String.valueOf(maskedCode));
-    }
-
-    /**
-     * Submits PIN
-     * Takes care of Error handling
-     * If PIN is correctly entered, it runs registered callback
-     */
-    private void submitPIN() {
-        if (mListener != null) {
-            if (mSetup) {
-                mListener.onPINSetup(mValue.toString());
-                mNumbersGridView.removeOnItemTouchListener(mItemClickListener);
-                dismiss();
-            } else if (mValue.toString().equals(mRealValue)) {
-                mListener.onPINEntered();
-                mNumbersGridView.removeOnItemTouchListener(mItemClickListener);
-                dismiss();
-            } else {
-                mListener.onWrongEntry();
-                mValueTextView.setText("");
-            }
-        }
+    @Override
+    public boolean isInteractive() {
+        return getDialog() != null;
     }
 
     @Override
-    public void onAttach(Context context) {
-        super.onAttach(context);
-        try {
-            mListener = (IPINDialogListener) context;
-        } catch (ClassCastException e) {
-            throw new ClassCastException(context.getClass().getName()
-                    + " must implement IPINDialogListener");
-        }
+    public void close() {
+        // result may arrive after host state was saved
+        dismissAllowingStateLoss();
     }
 
+    /**
+     * Wipe entered PIN, so no copy stays on the heap
+     * Pending unlock request is cancelled, unless dialog is only recreated
+     */
     @Override
-    public void onDetach() {
-        super.onDetach();
-        mListener = null;
+    public void onDestroy() {
+        super.onDestroy();
+        mController.destroy();
+        if (getActivity() == null || !getActivity().isChangingConfigurations()) {
+            PINCallbackRouter.release(mRequestId);
+            PINScreenManager.getInstance().onLockScreenClosed();
+        }
     }
 
     /**
      * Lock Grid adapter
      * Adapter for displaying grid of numbers (plus functional buttons) to enter PIN
      */
-    private class LockGridAdapter extends RecyclerView.Adapter<LockGridViewHolder> {
+    static class LockGridAdapter extends RecyclerView.Adapter<LockGridViewHolder> {
 
         private Context mContext;
-        private String[][] mValues;
-        private int mActiveColor;
-        private float dp;
+        private KeypadLayout mLayout;
+        private KeypadStyle mStyle;
 
-        public LockGridAdapter(Context context, int activeColor) {
+        public LockGridAdapter(Context context, KeypadStyle style, KeypadLayout layout) {
             mContext = context;
-            mValues = LockGridValues.gridValues;
-            mActiveColor = activeColor;
+            mStyle = style;
+            mLayout = layout;
+        }
+
+        /**
+         * Changes displayed layout
+         * If key count stays the same, only keys whose code changed are rebound
+         *
+         * @param layout new layout
+         */
+        public void setLayout(KeypadLayout layout) {
+            KeypadLayout old = mLayout;
+            mLayout = layout;
+            if (old.size() != layout.size()) {
+                notifyDataSetChanged();
+                return;
+            }
 
-            dp = mContext.getResources().getDisplayMetrics().density;
+            for (int i = 0; i < layout.size(); i++) {
+                if (old.getKeyCode(i) != layout.getKeyCode(i)) {
+                    notifyItemChanged(i);
+                }
+            }
         }
 
         @Override
         public LockGridViewHolder onCreateViewHolder(ViewGroup viewGroup, int i) {
-            return new LockGridViewHolder(
+            // background shares drawable state with all other keys of the style
+            LockGridViewHolder holder = new LockGridViewHolder(
                     LayoutInflater.from(mContext).inflate(R.layout.lock_grid_item, viewGroup, false),
-                    getBackgroundColorScheme(ContextCompat.getColor(mContext, android.R.color.transparent),
-                            mActiveColor));
+                    mStyle.newKeyBackground(mContext.getResources()));
+            holder.setTextColor(mStyle.getTextColor());
+            return holder;
         }
 
         @Override
         public void onBindViewHolder(LockGridViewHolder lockGridViewHolder, int i) {
-            String code = mValues[i][1];
-
-            lockGridViewHolder.setValue(mValues[i][0]);
-
-            // submit and back have smaller font-size
-            if (code.equals(LockGridValues.SUBMIT_TYPE) || code.equals(LockGridValues.BACK_TYPE)) {
-                lockGridViewHolder.setTextSize(TypedValue.COMPLEX_UNIT_SP, 26);
-            } else {
-                lockGridViewHolder.setTextSize(TypedValue.COMPLEX_UNIT_SP, 40);
-            }
+            lockGridViewHolder.setValue(mLayout.getLabel(i));
+            lockGridViewHolder.setTextSize(TypedValue.COMPLEX_UNIT_PX, mStyle.getKeyTextSize(mLayout.getKeyCode(i)));
         }
 
         @Override
         public int getItemCount() {
-            return mValues.length;
-        }
-
-        public String getItemType(int position) {
-            return mValues[position][1];
-        }
-
-        public String getItem(int position) {
-            return mValues[position][0];
-        }
-
-        /**
-         * Sets stateList background drawable for viewHolder (numbers adapter) views
-         *
-         * @param defaultColor default color
-         * @param pressedColor pressed color
-         *
-         * @return drawable
-         */
-        private Drawable getBackgroundColorScheme(int defaultColor, int pressedColor) {
-            int defaultBorder = Color.argb(30, 0, 0, 0);
-            int pressedBorder = Color.argb(80, 0, 0, 0);
-
-            // default state
-            GradientDrawable defaultGd = new GradientDrawable(GradientDrawable.Orientation.BOTTOM_TOP,
-                    new int[]{defaultColor, defaultColor});
-            defaultGd.setStroke(1, defaultBorder);
-            defaultGd.setCornerRadius(3f * dp);
-
-            // pressed state
-            GradientDrawable pressedGd = new GradientDrawable(GradientDrawable.Orientation.BOTTOM_TOP,
-                    new int[]{pressedColor, pressedColor});
-            pressedGd.setStroke(1, pressedBorder);
-            pressedGd.setCornerRadius(3f * dp);
-
-            StateListDrawable drawable = new StateListDrawable();
-            drawable.addState(new int[]{android.R.attr.state_pressed}, pressedGd);
-            drawable.addState(new int[]{}, defaultGd);
-            return drawable;
+            return mLayout.size();
         }
     }
 
     /**
      * Lock Grid viewHolder
      */
-    private class LockGridViewHolder extends RecyclerView.ViewHolder {
+    private static class LockGridViewHolder extends RecyclerView.ViewHolder {
 
         TextView mItemValue;
 
@@ -402,29 +500,9 @@ public class PINScreen extends DialogFragment implements RecyclerItemClickListen
         public void setTextSize(int unit, float size) {
             mItemValue.setTextSize(unit, size);
         }
-    }
 
-    /**
-     * Lock Grid values
-     */
-    private static class LockGridValues {
-        public static final String NUMBER_TYPE = "Number";
-        public static final String SUBMIT_TYPE = "Submit";
-        public static final String BACK_TYPE = "Back";
-
-        public static final String[][] gridValues = new String[][]{
-                {"1", NUMBER_TYPE},
-                {"2", NUMBER_TYPE},
-                {"3", NUMBER_TYPE},
-                {"4", NUMBER_TYPE},
-                {"5", NUMBER_TYPE},
-                {"6", NUMBER_TYPE},
-                {"7", NUMBER_TYPE},
-                {"8", NUMBER_TYPE},
-                {"9", NUMBER_TYPE},
-                {"<", BACK_TYPE},
-                {"0", NUMBER_TYPE},
-                {"OK", SUBMIT_TYPE}
-        };
+        public void setTextColor(int color) {
+            mItemValue.setTextColor(color);
+        }
     }
 }
@@ -1,9 +1,44 @@
 package sk.teamsoft.pinscreen;
 
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
 import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
 import android.support.v4.app.Fragment;
 import android.support.v4.app.FragmentManager;
 
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import sk.teamsoft.pinscreen.core.IKeypadLayoutProvider;
+import sk.teamsoft.pinscreen.core.IPINClock;
+import sk.teamsoft.pinscreen.core.IPINLockListener;
+import sk.teamsoft.pinscreen.core.IPINVerifier;
+import sk.teamsoft.pinscreen.core.KDFCalibrator;
+import sk.teamsoft.pinscreen.core.KeypadLayout;
+import sk.teamsoft.pinscreen.core.MultiPINVerifier;
+import sk.teamsoft.pinscreen.core.PBKDF2PINVerifier;
+import sk.teamsoft.pinscreen.core.PINCredential;
+import sk.teamsoft.pinscreen.core.PINCredentialStore;
+import sk.teamsoft.pinscreen.core.PINExecutors;
+import sk.teamsoft.pinscreen.core.PINLockObservers;
+import sk.teamsoft.pinscreen.core.PINLockState;
+import sk.teamsoft.pinscreen.core.PINLockTimer;
+import sk.teamsoft.pinscreen.core.PINThrottle;
+import sk.teamsoft.pinscreen.core.PlainPINVerifier;
+import sk.teamsoft.pinscreen.core.StoredPINVerifier;
+
 /**
  * Controller for PINScreen widget
  * All interaction should be managed through this class
@@ -13,91 +48,805 @@ import android.support.v4.app.FragmentManager;
 @SuppressWarnings("unused")
 public class PINScreenManager {
 
-    private static PINScreenManager sInstance;
+    private static final String PREFS_NAME = "sk_teamsoft_pinscreen";
+    private static final String PREF_KDF_ITERATIONS = "kdfIterations";
+    private static final String PREF_KDF_TARGET = "kdfTarget";
+    private static final String PREF_LOCKED = "locked";
+    private static final String PREF_LOCK_SCHEDULED_AT = "lockScheduledAt";
+    private static final String PREF_THROTTLE = "throttle";
+    private static final String STORE_DIR = "pinscreen";
+    private static final String STORE_FILE = "credential";
+
+    /**
+     * Default clock, elapsed realtime keeps running in deep sleep
+     */
+    private static final IPINClock SYSTEM_CLOCK = new IPINClock() {
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    /**
+     * Lazily initialized by class loading, safe to touch first from any thread
+     */
+    private static final class InstanceHolder {
+        static final PINScreenManager INSTANCE = new PINScreenManager();
+    }
 
     public static PINScreenManager getInstance() {
-        if (sInstance == null) {
-            synchronized (PINScreenManager.class) {
-                if (sInstance == null) {
-                    sInstance = new PINScreenManager();
+        return InstanceHolder.INSTANCE;
+    }
+
+    /**
+     * Immutable pair of PIN and its verifier, replaced as a whole
+     */
+    private static final class Secret {
+        /**
+         * PIN for unlocking the app
+         * Only kept for apps using plaintext {@link #setPIN(String)}
+         */
+        final String pin;
+        final IPINVerifier verifier;
+
+        Secret(String pin, IPINVerifier verifier) {
+            this.pin = pin;
+            this.verifier = verifier;
+        }
+    }
+
+    /**
+     * Application Locker
+     * Lock state is evaluated from the clock on every read, delay is 0 seconds by default
+     * State is swapped atomically, so it can be read from any thread without blocking
+     */
+    private final PINLockTimer.Callback mLockCallback = new PINLockTimer.Callback() {
+        @Override
+        public void onStateChanged(PINLockState state) {
+            mLockObservers.dispatch();
+            synchronized (mLoadLock) {
+                if (mPreferences == null) {
+                    // newer than persisted state, kept once it is loaded
+                    mLockChangedBeforeLoad = true;
+                    return;
                 }
             }
+            // serialized on single thread, each write takes the latest state
+            PINExecutors.background().execute(mPersistLockState);
         }
-        return sInstance;
-    }
 
+        @Override
+        public void onDelayElapsed(long delayMillis, long elapsedMillis) {
+            PINMetrics.lockDelayElapsed(delayMillis, elapsedMillis);
+        }
+    };
+    private final PINLockTimer mLockTimer = new PINLockTimer(SYSTEM_CLOCK, mLockCallback);
+    private final PINLockObservers mLockObservers = new PINLockObservers(mLockTimer);
+    private final Runnable mPersistLockState = new Runnable() {
+        @Override
+        public void run() {
+            PINLockState state = mLockTimer.getState();
+            mPreferences.edit()
+                    .putBoolean(PREF_LOCKED, state.isLocked())
+                    .putLong(PREF_LOCK_SCHEDULED_AT, state.getScheduledAt())
+                    .apply();
+        }
+    };
     /**
-     * Application Locker + handler
+     * Limits wrong entries, null if throttling is disabled
      */
-    private final Runnable lockTask = new Runnable() {
+    private volatile PINThrottle mThrottle = new PINThrottle(SYSTEM_CLOCK, PINThrottle.Policy.DEFAULT);
+    private volatile IPINClock mClock = SYSTEM_CLOCK;
+    private final Runnable mPersistThrottle = new Runnable() {
         @Override
         public void run() {
-            mLocked = true;
+            PINThrottle throttle = mThrottle;
+            if (throttle != null) {
+                mPreferences.edit().putString(PREF_THROTTLE, throttle.encode()).apply();
+            }
         }
     };
-    private final Handler lockHandler = new Handler();
-
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Executor mainExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            mainHandler.post(command);
+        }
+    };
+    /**
+     * PIN and verifier used to check entered PIN
+     */
+    private final AtomicReference<Secret> mSecret = new AtomicReference<>(new Secret("", new PlainPINVerifier("")));
+    private IPINCredentialListener mCredentialListener;
+    /**
+     * Storage for cached calibration and lock state
+     * Only available once it was loaded in background after {@link #init(Context)}
+     */
+    private volatile SharedPreferences mPreferences;
+    /**
+     * Application context given to {@link #init(Context)}, null before
+     */
+    private volatile Context mAppContext;
+    /**
+     * False while persisted lock state is loading, app is reported locked meanwhile
+     */
+    private volatile boolean mLockStateLoaded = true;
+    /**
+     * Guards changes made while persisted state is loading, so they are not overwritten by older state
+     */
+    private final Object mLoadLock = new Object();
+    private boolean mLockChangedBeforeLoad = false;
+    private boolean mThrottleChangedBeforeLoad = false;
     /**
-     * Is application locked
+     * Built-in store of hashed credential, created by {@link #init(Context)}
      */
-    private boolean mLocked = false;
+    private PINCredentialStore mCredentialStore;
     /**
-     * Delay for app locking
-     * Defined in seconds
-     * 0 by default
+     * Target latency of a single verification in milliseconds
      */
-    private int mLockDelay = 0;
+    private volatile long mTargetVerifyLatency = KDFCalibrator.DEFAULT_TARGET_MILLIS;
     /**
-     * PIN for unlocking the app
+     * Calibrated work factor, 0 until calibration finishes
      */
-    private String mPIN = "";
+    private volatile int mKDFIterations = 0;
+    /**
+     * Calibration for current target latency, null until scheduled, accessed only from the main thread
+     */
+    private FutureTask<Integer> mCalibration;
+    private boolean mCalibrationStarted = false;
+    /**
+     * Starts pending calibration once the main thread has nothing else to do
+     */
+    private final Runnable mScheduleCalibration = new Runnable() {
+        @Override
+        public void run() {
+            Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                @Override
+                public boolean queueIdle() {
+                    if (mCalibration != null) {
+                        startCalibration();
+                    }
+                    return false;
+                }
+            });
+        }
+    };
+    /**
+     * Submit PIN automatically when the last digit is entered
+     */
+    private boolean mAutoSubmit = false;
+    /**
+     * Activate keys on touch down instead of when finger lifts
+     */
+    private boolean mActivateOnDown = false;
+    /**
+     * Draw keys by single {@link PINKeypadView} instead of RecyclerView grid
+     */
+    private boolean mUseKeypadView = false;
+    /**
+     * Keypad layout of lock screens opened afterwards
+     */
+    private IKeypadLayoutProvider mKeypadLayout = KeypadLayout.STANDARD_PROVIDER;
+    private PINLifecycleTracker mLifecycleTracker;
+    /**
+     * Unlock request whose lock screen is shown, accessed only from the main thread
+     */
+    private PINUnlockRequest mUnlockRequest;
+
+    /**
+     * Initializes persistent cache of device calibration, lock state and attempt history
+     * Optional, without it calibration runs once per process
+     * Persisted state is loaded in background, so the calling thread never waits for disk,
+     * app is reported locked until lock state is loaded, see {@link #isAppLocked()}
+     * Call it once from {@code Application.onCreate}
+     *
+     * @param context context
+     */
+    public void init(Context context) {
+        final Context appContext = context.getApplicationContext();
+        // path is resolved without touching the disk, directory is created on first write
+        File storeDir = new File(context.getApplicationInfo().dataDir, STORE_DIR);
+        mCredentialStore = new PINCredentialStore(new File(storeDir, STORE_FILE), PINExecutors.background());
+
+        mAppContext = appContext;
+        mLockStateLoaded = false;
+        PINExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                loadPreferences(appContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+            }
+        });
+        calibrateIfNeeded(false);
+    }
 
     /**
+     * Restores persisted lock state and attempt history, called on background thread
+     * Changes made while loading are newer, they are kept and persisted instead
+     *
+     * @param preferences preferences to load from
+     */
+    private void loadPreferences(SharedPreferences preferences) {
+        boolean persistLockState;
+        boolean persistThrottle;
+        synchronized (mLoadLock) {
+            persistLockState = mLockChangedBeforeLoad;
+            persistThrottle = mThrottleChangedBeforeLoad;
+            if (!persistLockState) {
+                mLockTimer.restore(preferences.getBoolean(PREF_LOCKED, false),
+                        preferences.getLong(PREF_LOCK_SCHEDULED_AT, PINLockState.NOT_SCHEDULED));
+            }
+            mPreferences = preferences;
+            if (!persistThrottle) {
+                restoreThrottle();
+            }
+            mLockStateLoaded = true;
+        }
+
+        if (persistLockState) {
+            mPersistLockState.run();
+        }
+        if (persistThrottle) {
+            mPersistThrottle.run();
+        }
+        // listeners saw the app unlocked so far, restored state may differ
+        mLockObservers.dispatch();
+    }
+
+    /**
+     * Fails closed, app is reported locked while persisted lock state is loading after {@link #init(Context)}
+     *
      * @return true if app is locked
      */
     public boolean isAppLocked() {
-        return mLocked;
+        return !mLockStateLoaded || mLockTimer.isLocked();
     }
 
     /**
      * Locks app
      */
     public void lock() {
-        mLocked = true;
+        mLockTimer.lock();
     }
 
     /**
      * Unlocks app
      */
     public void unLock() {
-        mLocked = false;
+        mLockTimer.unlock();
     }
 
     /**
      * Locks app with defined delay
      * Delay is 0 seconds by default
+     * Nothing is scheduled, app is reported locked by {@link #isAppLocked()} once the delay elapsed
+     * If {@link #init(Context)} was called, request survives process restart
      */
     public void lockWithDelay() {
-        lockHandler.removeCallbacks(lockTask);
-        lockHandler.postDelayed(lockTask, mLockDelay * 1000);
+        mLockTimer.lockWithDelay();
+    }
+
+    /**
+     * Cancels delayed lock requested by {@link #lockWithDelay()}
+     * If the delay already elapsed, app stays locked
+     */
+    public void cancelDelayedLock() {
+        mLockTimer.cancelDelayed();
+    }
+
+    /**
+     * Installs process-wide tracking of app visibility
+     * Delayed lock is started when the last Activity of the app is stopped
+     * and checked when any Activity is started again, so Activities do not need
+     * to call {@link #lockWithDelay()} themselves
+     * Navigation between Activities of the app and configuration changes do not start the delay
+     * Call it from {@code Application.onCreate}, Activities started before installation are not tracked,
+     * so app going to background right after late installation does not start the delay
+     * Use {@link #addLockStateListener(IPINLockListener)} or {@link #isAppLocked()} to prompt for PIN
+     * Requires API 14, does nothing on older platforms
+     *
+     * @param application application
+     *
+     * @return true if tracking is installed
+     */
+    public boolean installLifecycleTracking(Application application) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (mLifecycleTracker == null) {
+                mLifecycleTracker = new PINLifecycleTracker(this);
+                application.registerActivityLifecycleCallbacks(mLifecycleTracker);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers listener notified on the main thread whenever app gets locked or unlocked
+     *
+     * @param listener listener, only weakly referenced
+     * @see #addLockStateListener(IPINLockListener, Executor)
+     */
+    public void addLockStateListener(IPINLockListener listener) {
+        addLockStateListener(listener, mainExecutor);
+    }
+
+    /**
+     * Registers listener notified whenever app gets locked or unlocked
+     * Listener is weakly referenced, so registered Activities are not leaked,
+     * but anonymous listeners have to be kept reachable by the caller
+     * Delayed lock is lazy, it is reported once lock state is read after the delay elapsed
+     *
+     * @param listener listener
+     * @param executor executor to notify listener on
+     */
+    public void addLockStateListener(IPINLockListener listener, Executor executor) {
+        mLockObservers.add(listener, executor);
+    }
+
+    /**
+     * @param listener listener to unregister
+     */
+    public void removeLockStateListener(IPINLockListener listener) {
+        mLockObservers.remove(listener);
+    }
+
+    /**
+     * Replaces time source of lock evaluation
+     * Intended for tests
+     *
+     * @param clock clock, null for the system elapsed realtime
+     */
+    public void setClock(IPINClock clock) {
+        mClock = clock != null ? clock : SYSTEM_CLOCK;
+        mLockTimer.setClock(mClock);
+        PINThrottle throttle = mThrottle;
+        if (throttle != null) {
+            throttle.setClock(mClock);
+        }
+    }
+
+    /**
+     * Sets limits of wrong entries
+     * {@link PINThrottle.Policy#DEFAULT} is used by default
+     * Should be called before {@link #init(Context)}, attempt history is restored with the new policy
+     *
+     * @param policy throttle policy, null to disable throttling
+     */
+    public void setThrottlePolicy(PINThrottle.Policy policy) {
+        mThrottle = policy != null ? new PINThrottle(mClock, policy) : null;
+        restoreThrottle();
+    }
+
+    /**
+     * @return throttle of wrong entries, or null if disabled
+     */
+    PINThrottle getThrottle() {
+        return mThrottle;
+    }
+
+    /**
+     * Persists attempt history after it was changed
+     */
+    void onThrottleChanged() {
+        synchronized (mLoadLock) {
+            if (mPreferences == null) {
+                mThrottleChangedBeforeLoad = true;
+                return;
+            }
+        }
+        PINExecutors.background().execute(mPersistThrottle);
+    }
+
+    private void restoreThrottle() {
+        PINThrottle throttle = mThrottle;
+        if (throttle != null && mPreferences != null) {
+            String encoded = mPreferences.getString(PREF_THROTTLE, null);
+            if (encoded != null) {
+                throttle.restore(encoded);
+            }
+        }
+    }
+
+    /**
+     * Sets whether PIN is submitted automatically when the last digit is entered
+     * False by default, OK button has to be pressed
+     *
+     * @param autoSubmit true to skip OK button
+     */
+    public void setAutoSubmit(boolean autoSubmit) {
+        mAutoSubmit = autoSubmit;
+    }
+
+    /**
+     * Sets whether keys are activated on touch down instead of when finger lifts
+     * False by default, activation on down suits fast typists, as no key waits for the finger to lift
+     * Applies to lock screens opened afterwards
+     *
+     * @param activateOnDown true to activate keys on touch down
+     */
+    public void setActivateOnDown(boolean activateOnDown) {
+        mActivateOnDown = activateOnDown;
+    }
+
+    /**
+     * Sets whether lock screen uses single custom-drawn {@link PINKeypadView}
+     * False by default, keys are laid out by RecyclerView
+     * Applies to lock screens opened afterwards
+     *
+     * @param useKeypadView true to use custom-drawn keypad
+     */
+    public void setUseKeypadView(boolean useKeypadView) {
+        mUseKeypadView = useKeypadView;
+    }
+
+    /**
+     * Sets provider of keypad layout, asked every time lock screen is shown
+     * Use {@link KeypadLayout#SCRAMBLED_PROVIDER} to reshuffle digits on every show
+     *
+     * @param provider layout provider, null for the standard layout
+     */
+    public void setKeypadLayout(IKeypadLayoutProvider provider) {
+        mKeypadLayout = provider != null ? provider : KeypadLayout.STANDARD_PROVIDER;
+    }
+
+    /**
+     * @return provider of keypad layout
+     */
+    public IKeypadLayoutProvider getKeypadLayout() {
+        return mKeypadLayout;
+    }
+
+    /**
+     * Sets listener receiving lock screen performance metrics
+     * No metrics are collected while listener is null (default)
+     *
+     * @param listener metrics listener, or null to stop collecting
+     */
+    public void setMetricsListener(IPINMetricsListener listener) {
+        PINMetrics.setListener(listener);
+    }
+
+    /**
+     * Inflates and binds lock screen ahead of time, so showing it later costs little more than attaching a view
+     * Call it e.g. when the app goes to background, pre-warmed views are not tied to any Activity
+     * Has to be called on main thread
+     *
+     * @param context any context, only application context is retained
+     */
+    public void prewarm(Context context) {
+        LockScreenViews.prewarm(context, mUseKeypadView);
+    }
+
+    /**
+     * Releases pre-warmed lock screen, e.g. from {@code onTrimMemory}
+     */
+    public void releasePrewarmed() {
+        LockScreenViews.clear();
     }
 
     /**
      * Sets pin to compare entry with
      *
      * @param newPIN pin
+     * @deprecated plaintext PIN is kept in memory, use {@link #hashPIN(String)}
+     * or {@link #setPINCredential(PINCredential)}
      */
+    @Deprecated
     public void setPIN(String newPIN) {
-        mPIN = newPIN;
+        mSecret.set(new Secret(newPIN, new PlainPINVerifier(newPIN)));
     }
 
     /**
      * Gets pin
      *
-     * @return pin
+     * @return pin, or null if hashed credential is used
+     * @deprecated see {@link #setPIN(String)}
      */
+    @Deprecated
     public String getPIN() {
-        return mPIN;
+        return mSecret.get().pin;
+    }
+
+    /**
+     * Sets stored hashed credential to compare entry with
+     *
+     * @param credential credential, e.g. restored by {@link PINCredential#decode(String)}
+     */
+    public void setPINCredential(PINCredential credential) {
+        setPINVerifier(new PBKDF2PINVerifier(credential));
+    }
+
+    /**
+     * Sets hashed credentials of several identities sharing the device
+     * Entry is matched against all of them in parallel, matched identity is reported
+     * to {@link IPINIdentityListener}, the first one in map iteration order if PINs are shared
+     * Entry is as long as the longest PIN, shorter PINs are submitted by OK key
+     *
+     * @param credentials credentials by identity
+     */
+    public void setPINCredentials(Map<String, PINCredential> credentials) {
+        setPINVerifier(new MultiPINVerifier(credentials));
+    }
+
+    /**
+     * Sets custom verifier to compare entry with
+     * Verifier is always called from background thread
+     *
+     * @param verifier verifier
+     */
+    public void setPINVerifier(IPINVerifier verifier) {
+        mSecret.set(new Secret(null, verifier));
+    }
+
+    /**
+     * @return verifier used to compare entry with
+     */
+    public IPINVerifier getPINVerifier() {
+        return mSecret.get().verifier;
+    }
+
+    /**
+     * Sets listener notified when new hashed credential is created
+     * Use it to persist the credential
+     *
+     * @param listener credential listener
+     */
+    public void setCredentialListener(IPINCredentialListener listener) {
+        mCredentialListener = listener;
+    }
+
+    /**
+     * Keeps hashed credential in the built-in store instead of leaving persistence to the app
+     * Credential is loaded in background, lock screen never waits for disk,
+     * PIN length of lock screen shown before the store is loaded is applied once it is loaded
+     * Credentials created by {@link #hashPIN(String)} or re-hashed afterwards are written to the store,
+     * {@link IPINCredentialListener} is still notified
+     * Requires {@link #init(Context)}
+     */
+    public void useCredentialStore() {
+        if (mCredentialStore == null) {
+            throw new IllegalStateException("PINScreenManager.init(Context) has to be called first");
+        }
+        mCredentialStore.preload();
+        setPINVerifier(new StoredPINVerifier(mCredentialStore));
+    }
+
+    /**
+     * @return built-in credential store, or null before {@link #init(Context)}
+     */
+    public PINCredentialStore getCredentialStore() {
+        return mCredentialStore;
+    }
+
+    /**
+     * Hashes new PIN in background and starts using it once it is ready
+     * Result is delivered to {@link IPINCredentialListener} on main thread
+     *
+     * @param newPIN pin
+     */
+    public void hashPIN(final String newPIN) {
+        calibrateIfNeeded(true);
+        final Future<Integer> calibration = mCalibration;
+        PINExecutors.background().execute(new Runnable() {
+            @Override
+            public void run() {
+                final PINCredential credential = PINCredential.create(newPIN, awaitKDFIterations(calibration));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onCredentialChanged(credential);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sets target latency of a single verification
+     * Changing it forces new calibration, credentials weaker than the new work factor are re-hashed on next unlock
+     * Has to be called on the main thread
+     *
+     * @param millis target latency in milliseconds
+     */
+    public void setTargetVerifyLatency(long millis) {
+        if (millis != mTargetVerifyLatency) {
+            mTargetVerifyLatency = millis;
+            mKDFIterations = 0;
+            mCalibration = null;
+            calibrateIfNeeded(false);
+        }
+    }
+
+    /**
+     * @return calibrated work factor for new credentials,
+     * or {@link PBKDF2PINVerifier#DEFAULT_ITERATIONS} if calibration has not finished yet
+     */
+    public int getKDFIterations() {
+        int iterations = mKDFIterations;
+        return iterations > 0 ? iterations : PBKDF2PINVerifier.DEFAULT_ITERATIONS;
+    }
+
+    /**
+     * Schedules one-time calibration of the work factor
+     * Calibration runs on its own thread, so it never delays verification, and by default it starts only
+     * once the main thread is idle, so it does not measure while lock screen is being inflated
+     * Cached result is used if it was calibrated for the same target latency
+     * Has to be called on the main thread
+     *
+     * @param immediately true to start right away, e.g. when new PIN waits for the work factor
+     */
+    private void calibrateIfNeeded(boolean immediately) {
+        if (mKDFIterations > 0) {
+            return;
+        }
+
+        if (mCalibration == null) {
+            mCalibration = newCalibration(mTargetVerifyLatency);
+            mCalibrationStarted = false;
+            if (!immediately) {
+                mainHandler.post(mScheduleCalibration);
+                return;
+            }
+        }
+        startCalibration();
+    }
+
+    private void startCalibration() {
+        if (mCalibrationStarted) {
+            return;
+        }
+        mCalibrationStarted = true;
+
+        // normal priority, low-priority thread would be preempted and measure the device slower than it is
+        Thread thread = new Thread(mCalibration, "pinscreen-calibration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY);
+        thread.start();
+    }
+
+    /**
+     * @param target target latency in milliseconds
+     *
+     * @return task computing the work factor, or reading it from the cache
+     */
+    private FutureTask<Integer> newCalibration(final long target) {
+        return new FutureTask<>(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                SharedPreferences preferences = getPreferences();
+                if (preferences != null && preferences.getLong(PREF_KDF_TARGET, 0) == target) {
+                    int cached = preferences.getInt(PREF_KDF_ITERATIONS, 0);
+                    if (cached > 0) {
+                        return publishIterations(target, cached);
+                    }
+                }
+
+                int iterations = KDFCalibrator.calibrate(target);
+                if (publishIterations(target, iterations) > 0 && preferences != null) {
+                    preferences.edit()
+                            .putLong(PREF_KDF_TARGET, target)
+                            .putInt(PREF_KDF_ITERATIONS, iterations)
+                            .apply();
+                }
+                return iterations;
+            }
+        });
+    }
+
+    /**
+     * Reads preferences directly instead of waiting for {@link #loadPreferences(SharedPreferences)},
+     * which may be queued behind work waiting for calibration
+     * May block on disk I/O, called from background thread
+     *
+     * @return preferences, or null before {@link #init(Context)}
+     */
+    private SharedPreferences getPreferences() {
+        Context context = mAppContext;
+        return context != null ? context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE) : null;
+    }
+
+    /**
+     * @return published work factor, 0 if target changed meanwhile and newer calibration is due
+     */
+    private int publishIterations(long target, int iterations) {
+        if (target != mTargetVerifyLatency) {
+            return 0;
+        }
+        mKDFIterations = iterations;
+        return iterations;
+    }
+
+    /**
+     * Waits for pending calibration, called from background thread
+     *
+     * @param calibration calibration to wait for, or null
+     *
+     * @return calibrated work factor, or default one if calibration failed
+     */
+    private int awaitKDFIterations(Future<Integer> calibration) {
+        if (calibration != null) {
+            try {
+                calibration.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ignored) {
+                // default work factor is used
+            }
+        }
+        return getKDFIterations();
+    }
+
+    /**
+     * Re-derives current credential if its work factor is outdated
+     * Called on background thread after successful verification, before entry is wiped
+     *
+     * @param verifier verifier which accepted the entry
+     * @param entry    buffer holding correct PIN
+     * @param length   number of valid characters in the buffer
+     */
+    void rehashIfNeeded(IPINVerifier verifier, char[] entry, int length) {
+        if (verifier != getPINVerifier() || mKDFIterations == 0) {
+            return;
+        }
+
+        final PINCredential current;
+        if (verifier instanceof PBKDF2PINVerifier) {
+            current = ((PBKDF2PINVerifier) verifier).getCredential();
+        } else if (verifier instanceof StoredPINVerifier) {
+            current = ((StoredPINVerifier) verifier).getStore().get();
+        } else {
+            return;
+        }
+        if (current == null || !current.needsRehash(mKDFIterations)) {
+            return;
+        }
+
+        final PINCredential credential = PINCredential.create(entry, length, mKDFIterations);
+        final IPINVerifier expected = verifier;
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                // skip if PIN was changed while re-hashing
+                Secret secret = mSecret.get();
+                if (secret.verifier != expected) {
+                    return;
+                }
+
+                if (expected instanceof StoredPINVerifier) {
+                    PINCredentialStore store = ((StoredPINVerifier) expected).getStore();
+                    if (store.peek() == current) {
+                        store.put(credential);
+                        notifyCredentialChanged(credential);
+                    }
+                } else if (mSecret.compareAndSet(secret, new Secret(null, new PBKDF2PINVerifier(credential)))) {
+                    notifyCredentialChanged(credential);
+                }
+            }
+        });
+    }
+
+    /**
+     * Installs new credential and notifies the listener
+     * Has to be called on main thread
+     *
+     * @param credential new credential
+     */
+    private void onCredentialChanged(PINCredential credential) {
+        IPINVerifier verifier = getPINVerifier();
+        if (verifier instanceof StoredPINVerifier) {
+            ((StoredPINVerifier) verifier).getStore().put(credential);
+        } else {
+            setPINCredential(credential);
+        }
+        notifyCredentialChanged(credential);
+    }
+
+    private void notifyCredentialChanged(PINCredential credential) {
+        if (mCredentialListener != null) {
+            mCredentialListener.onPINCredentialChanged(credential);
+        }
     }
 
     /**
@@ -106,7 +855,7 @@ public class PINScreenManager {
      * @param delay delay in seconds
      */
     public void setPINDelay(int delay) {
-        mLockDelay = delay;
+        mLockTimer.setDelay(delay * 1000L);
     }
 
     /**
@@ -115,24 +864,39 @@ public class PINScreenManager {
      * @param fm         fragment manager
      * @param cancelable true if dialog can be cancelled
      */
-    private void askForPINInternal(FragmentManager fm,
-                                   Boolean cancelable,
-                                   boolean setup) {
-        Fragment fragment = fm.findFragmentByTag(PINScreen.FRAGMENT_TAG);
-        PINScreen lockScreen;
+    private PINScreen askForPINInternal(FragmentManager fm,
+                                        Boolean cancelable,
+                                        boolean setup) {
+        calibrateIfNeeded(false);
 
-        if (fragment instanceof PINScreen) {
-            lockScreen = ((PINScreen) fragment);
-        } else {
-            lockScreen = PINScreen.show(fm);
-        }
+        PINMetrics.beginSection(PINMetrics.SECTION_SHOW);
+        try {
+            Fragment fragment = fm.findFragmentByTag(PINScreen.FRAGMENT_TAG);
+            PINScreen lockScreen;
+
+            if (fragment instanceof PINScreen) {
+                lockScreen = ((PINScreen) fragment);
+            } else {
+                PINMetrics.markShowRequested();
+                lockScreen = PINScreen.show(fm);
+                lockScreen.setUseKeypadView(mUseKeypadView);
+            }
 
-        lockScreen.updateSettings(mPIN, cancelable, setup);
+            lockScreen.updateSettings(getPINVerifier(), cancelable, setup);
+            lockScreen.setAutoSubmit(mAutoSubmit);
+            lockScreen.setActivateOnDown(mActivateOnDown);
+            lockScreen.setKeypadLayout(mKeypadLayout);
+            return lockScreen;
+        } finally {
+            PINMetrics.endSection();
+        }
     }
 
     /**
      * Opens PIN screen to ask for PIN
      * PIN has to be set before, or it will be the default one ("")
+     * Entry is verified in background, result is delivered to the hosting Activity
+     * if it implements {@link IPINDialogListener}
      *
      * @param fragmentManager fragment manager to use when showing Lock screen
      * @param cancelable      true to make PIN dialog cancellable
@@ -149,4 +913,172 @@ public class PINScreenManager {
     public void setupPIN(FragmentManager fragmentManager, Integer maxLength) {
         askForPINInternal(fragmentManager, true, true);
     }
+
+    /**
+     * Opens PIN screen to ask for PIN, result is delivered also to given listener
+     * Listener is only weakly referenced, so it can be any component without leaking it
+     *
+     * @param fragmentManager fragment manager to use when showing Lock screen
+     * @param cancelable      true to make PIN dialog cancellable
+     * @param listener        additional receiver of results
+     * @see #askForPIN(android.support.v4.app.FragmentManager, Boolean)
+     */
+    public void askForPIN(FragmentManager fragmentManager, Boolean cancelable, IPINDialogListener listener) {
+        askForPINInternal(fragmentManager, cancelable, false).addListener(listener);
+    }
+
+    /**
+     * Sets new PIN, result is delivered also to given listener
+     *
+     * @see #askForPIN(android.support.v4.app.FragmentManager, Boolean, IPINDialogListener)
+     */
+    public void setupPIN(FragmentManager fragmentManager, Integer maxLength, IPINDialogListener listener) {
+        askForPINInternal(fragmentManager, true, true).addListener(listener);
+    }
+
+    /**
+     * Opens PIN screen on behalf of fragment
+     * Fragment implementing {@link IPINDialogListener} receives results as target fragment,
+     * so it gets them even after it is recreated
+     *
+     * @param fragment   requesting fragment
+     * @param cancelable true to make PIN dialog cancellable
+     */
+    public void askForPIN(Fragment fragment, Boolean cancelable) {
+        askForPINInternal(fragment.getFragmentManager(), cancelable, false).setTargetFragment(fragment, 0);
+    }
+
+    /**
+     * Sets new PIN on behalf of fragment
+     *
+     * @see #askForPIN(android.support.v4.app.Fragment, Boolean)
+     */
+    public void setupPIN(Fragment fragment, Integer maxLength) {
+        askForPINInternal(fragment.getFragmentManager(), true, true).setTargetFragment(fragment, 0);
+    }
+
+    /**
+     * Prompt PIN overlay attached to activity decor view
+     *
+     * @param activity   hosting activity, receives results if it implements {@link IPINDialogListener}
+     * @param cancelable true if overlay can be cancelled by back key
+     *
+     * @return overlay handle
+     */
+    private PINOverlay askForPINInternal(Activity activity,
+                                         Boolean cancelable,
+                                         boolean setup) {
+        calibrateIfNeeded(false);
+
+        PINMetrics.beginSection(PINMetrics.SECTION_SHOW);
+        try {
+            PINOverlay overlay = PINOverlay.show(activity, mUseKeypadView);
+            overlay.updateSettings(getPINVerifier(), cancelable, setup);
+            overlay.setAutoSubmit(mAutoSubmit);
+            overlay.setActivateOnDown(mActivateOnDown);
+            overlay.setKeypadLayout(mKeypadLayout);
+            return overlay;
+        } finally {
+            PINMetrics.endSection();
+        }
+    }
+
+    /**
+     * Opens PIN screen as overlay of the activity window
+     * Unlike dialog, overlay is shown synchronously without fragment transaction,
+     * so it can be put up directly in {@code onResume}
+     *
+     * @param activity   activity to show overlay in, receives results if it implements {@link IPINDialogListener}
+     * @param cancelable true to make PIN overlay cancellable by back key
+     *
+     * @return overlay handle, use {@link PINOverlay#addListener(IPINDialogListener)} for other receivers
+     */
+    public PINOverlay askForPIN(Activity activity, Boolean cancelable) {
+        return askForPINInternal(activity, cancelable, false);
+    }
+
+    /**
+     * Sets new PIN using overlay
+     *
+     * @see #askForPIN(android.app.Activity, Boolean)
+     */
+    public PINOverlay setupPIN(Activity activity, Integer maxLength) {
+        return askForPINInternal(activity, true, true);
+    }
+
+    /**
+     * Asks for PIN unless app is unlocked already
+     * Requests made while lock screen of another request is shown join it,
+     * even if they use different fragment manager, so lock screens are never stacked
+     * App is unlocked when correct PIN is entered
+     * Has to be called on the main thread
+     *
+     * @param fragmentManager fragment manager to use when showing Lock screen
+     * @param cancelable      true to make PIN dialog cancellable
+     *
+     * @return pending request, or request which is done already if app is not locked
+     */
+    public PINUnlockRequest requestUnlock(FragmentManager fragmentManager, boolean cancelable) {
+        if (mUnlockRequest != null) {
+            return mUnlockRequest;
+        }
+        if (!isAppLocked()) {
+            return PINUnlockRequest.completed(true);
+        }
+
+        // assigned only once lock screen is shown, failed show must not leave request pending forever
+        PINUnlockRequest request = new PINUnlockRequest();
+        askForPINInternal(fragmentManager, cancelable, false);
+        mUnlockRequest = request;
+        return request;
+    }
+
+    /**
+     * Asks for PIN using overlay unless app is unlocked already
+     *
+     * @param activity   activity to show overlay in, receives results if it implements {@link IPINDialogListener}
+     * @param cancelable true to make PIN overlay cancellable by back key
+     *
+     * @return pending request, or request which is done already if app is not locked
+     * @see #requestUnlock(FragmentManager, boolean)
+     */
+    public PINUnlockRequest requestUnlock(Activity activity, boolean cancelable) {
+        if (mUnlockRequest != null) {
+            return mUnlockRequest;
+        }
+        if (!isAppLocked()) {
+            return PINUnlockRequest.completed(true);
+        }
+
+        PINUnlockRequest request = new PINUnlockRequest();
+        askForPINInternal(activity, cancelable, false);
+        mUnlockRequest = request;
+        return request;
+    }
+
+    /**
+     * Correct PIN was entered on lock screen
+     * Called on the main thread
+     */
+    void onUnlocked() {
+        PINUnlockRequest request = mUnlockRequest;
+        if (request != null) {
+            mUnlockRequest = null;
+            unLock();
+            request.complete(true);
+        }
+    }
+
+    /**
+     * Lock screen was closed for good
+     * Pending request is cancelled, unless it was completed already
+     * Called on the main thread
+     */
+    void onLockScreenClosed() {
+        PINUnlockRequest request = mUnlockRequest;
+        if (request != null) {
+            mUnlockRequest = null;
+            request.complete(false);
+        }
+    }
 }
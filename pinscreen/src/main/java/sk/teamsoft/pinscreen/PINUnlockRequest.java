@@ -0,0 +1,89 @@
+package sk.teamsoft.pinscreen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handle of pending unlock
+ * Concurrent unlock requests share single lock screen and single instance of this handle,
+ * its outcome is delivered to every listener
+ * Has to be used on the main thread
+ *
+ * @see PINScreenManager#requestUnlock(android.support.v4.app.FragmentManager, boolean)
+ */
+public final class PINUnlockRequest {
+
+    private final List<IPINUnlockListener> mListeners = new ArrayList<>();
+    private boolean mDone = false;
+    private boolean mUnlocked = false;
+
+    PINUnlockRequest() {
+    }
+
+    /**
+     * @return request which is already done
+     */
+    static PINUnlockRequest completed(boolean unlocked) {
+        PINUnlockRequest request = new PINUnlockRequest();
+        request.complete(unlocked);
+        return request;
+    }
+
+    /**
+     * Adds listener of the outcome
+     * If request is already done, listener is called immediately
+     *
+     * @param listener listener
+     *
+     * @return this request
+     */
+    public PINUnlockRequest addListener(IPINUnlockListener listener) {
+        if (mDone) {
+            listener.onUnlockResult(mUnlocked);
+        } else if (!mListeners.contains(listener)) {
+            mListeners.add(listener);
+        }
+        return this;
+    }
+
+    /**
+     * @param listener listener which should not be notified anymore
+     */
+    public void removeListener(IPINUnlockListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * @return true if lock screen of this request was closed
+     */
+    public boolean isDone() {
+        return mDone;
+    }
+
+    /**
+     * @return true if correct PIN was entered
+     */
+    public boolean isUnlocked() {
+        return mUnlocked;
+    }
+
+    /**
+     * Delivers outcome to all listeners, only the first call has effect
+     *
+     * @param unlocked true if correct PIN was entered
+     */
+    void complete(boolean unlocked) {
+        if (mDone) {
+            return;
+        }
+        mDone = true;
+        mUnlocked = unlocked;
+
+        // listeners may remove themselves while notified
+        IPINUnlockListener[] listeners = mListeners.toArray(new IPINUnlockListener[mListeners.size()]);
+        mListeners.clear();
+        for (IPINUnlockListener listener : listeners) {
+            listener.onUnlockResult(unlocked);
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package sk.teamsoft.pinscreen;
 
 import android.content.Context;
+import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
-import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.View;
 
 /**
  * Touch listener for intercepting clicks in recyclerView
+ * With {@link GridLayoutManager} of single-span items, touched item is computed directly from the grid geometry
+ * instead of searching children, other layout managers fall back to child lookup
+ * Every finger is tracked separately, items show pressed state while touched
  */
 public class RecyclerItemClickListener implements RecyclerView.OnItemTouchListener {
     private OnItemClickListener mListener;
@@ -22,49 +25,124 @@ public class RecyclerItemClickListener implements RecyclerView.OnItemTouchListen
         void onItemClick(View view, int position);
     }
 
-    GestureDetector mGestureDetector;
-    ExtendedGestureListener mGestureListener;
+    private final KeypadTouchHandler mTouchHandler;
+
+    /**
+     * Recycler view of the gesture being handled, released once no finger is tracked
+     */
+    private RecyclerView mView;
 
     public RecyclerItemClickListener(Context context, OnItemClickListener listener) {
         mListener = listener;
-        mGestureListener = new ExtendedGestureListener();
-        mGestureDetector = new GestureDetector(context, mGestureListener);
+        mTouchHandler = new KeypadTouchHandler(new KeypadTouchHandler.Target() {
+            @Override
+            public int keyAt(float x, float y) {
+                return itemAt(x, y);
+            }
+
+            @Override
+            public void setKeyPressed(int position, boolean pressed) {
+                View item = mView != null ? mView.getLayoutManager().findViewByPosition(position) : null;
+                if (item != null) {
+                    item.setPressed(pressed);
+                }
+            }
+
+            @Override
+            public void onKeyClick(int position) {
+                View item = mView != null ? mView.getLayoutManager().findViewByPosition(position) : null;
+                if (item != null && mListener != null) {
+                    mListener.onItemClick(item, position);
+                }
+            }
+        });
     }
 
+    /**
+     * Clicks items as soon as they are touched instead of when finger lifts
+     *
+     * @param activateOnDown true to activate items on touch down
+     */
+    public void setActivateOnDown(boolean activateOnDown) {
+        mTouchHandler.setActivateOnDown(activateOnDown);
+    }
+
+    /**
+     * Touch down on an item takes over the whole gesture, so items never handle it themselves
+     */
     @Override
     public boolean onInterceptTouchEvent(RecyclerView view, MotionEvent e) {
-        View childView = view.findChildViewUnder(e.getX(), e.getY());
-        if (childView != null && mListener != null) {
-            mGestureListener.setHelpers(childView, view.getChildAdapterPosition(childView));
-            mGestureDetector.onTouchEvent(e);
+        if (mListener == null) {
+            return false;
         }
-        return false;
+        return handle(view, e);
+    }
+
+    /**
+     * @return uptime of touch down which started the last delivered tap
+     */
+    public long getLastDownTime() {
+        return mTouchHandler.getLastDownTime();
     }
 
     @Override
     public void onTouchEvent(RecyclerView view, MotionEvent motionEvent) {
+        handle(view, motionEvent);
     }
 
     @Override
-    public void onRequestDisallowInterceptTouchEvent(boolean b) {
+    public void onRequestDisallowInterceptTouchEvent(boolean disallow) {
+        if (disallow) {
+            mTouchHandler.cancel();
+            mView = null;
+        }
+    }
+
+    private boolean handle(RecyclerView view, MotionEvent e) {
+        mView = view;
+        boolean tracking = mTouchHandler.onTouchEvent(e);
+        if (!tracking) {
+            mView = null;
+        }
+        return tracking;
     }
 
     /**
-     * Extended Gesture listener react for both item clicks and item long clicks
+     * Resolves item under given coordinates
+     * Grid rows are assumed to be of equal height, as they are in the keypad
+     *
+     * @return adapter position or {@link KeypadTouchHandler#NO_KEY}
      */
-    private class ExtendedGestureListener extends GestureDetector.SimpleOnGestureListener {
-        private View view;
-        private int position;
+    private int itemAt(float x, float y) {
+        RecyclerView.LayoutManager layoutManager = mView.getLayoutManager();
+        if (!(layoutManager instanceof GridLayoutManager)) {
+            View child = mView.findChildViewUnder(x, y);
+            int position = child != null ? mView.getChildAdapterPosition(child) : RecyclerView.NO_POSITION;
+            return position != RecyclerView.NO_POSITION ? position : KeypadTouchHandler.NO_KEY;
+        }
 
-        public void setHelpers(View view, int position) {
-            this.view = view;
-            this.position = position;
+        if (mView.getChildCount() == 0) {
+            return KeypadTouchHandler.NO_KEY;
+        }
+        View first = mView.getChildAt(0);
+        int firstPosition = mView.getChildAdapterPosition(first);
+        if (firstPosition == RecyclerView.NO_POSITION) {
+            return KeypadTouchHandler.NO_KEY;
         }
 
-        @Override
-        public boolean onSingleTapUp(MotionEvent e) {
-            mListener.onItemClick(view, position);
-            return true;
+        int spanCount = ((GridLayoutManager) layoutManager).getSpanCount();
+        RecyclerView.LayoutParams params = (RecyclerView.LayoutParams) first.getLayoutParams();
+        float rowHeight = layoutManager.getDecoratedMeasuredHeight(first) + params.topMargin + params.bottomMargin;
+        float columnWidth = (float) (mView.getWidth() - mView.getPaddingLeft() - mView.getPaddingRight()) / spanCount;
+        float top = layoutManager.getDecoratedTop(first) - params.topMargin - (firstPosition / spanCount) * rowHeight;
+        float localX = x - mView.getPaddingLeft();
+        float localY = y - top;
+        if (rowHeight <= 0 || columnWidth <= 0 || localX < 0 || localY < 0) {
+            return KeypadTouchHandler.NO_KEY;
         }
+
+        int column = (int) (localX / columnWidth);
+        int position = (int) (localY / rowHeight) * spanCount + column;
+        return column < spanCount && position < layoutManager.getItemCount() ? position : KeypadTouchHandler.NO_KEY;
     }
-}
\ No newline at end of file
+}
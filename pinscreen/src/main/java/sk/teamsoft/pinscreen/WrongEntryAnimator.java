@@ -0,0 +1,195 @@
+package sk.teamsoft.pinscreen;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewPropertyAnimatorListener;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.animation.Interpolator;
+
+/**
+ * Shakes PIN field and flashes keypad on wrong entry
+ * Each animation is single property animation on hardware layer, so views are not re-recorded while they move,
+ * animation itself still ticks on the main thread
+ * Damped oscillation lives in the interpolator and nothing is allocated per frame
+ * Duration and dropped frames are reported to {@link IPINMetricsListener}
+ */
+class WrongEntryAnimator {
+
+    private static final int SHAKE_CYCLES = 3;
+    private static final float FLASH_ALPHA = 0.4f;
+
+    /**
+     * Damped sine, ends where it started
+     */
+    private static final Interpolator SHAKE = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return (float) (Math.sin(input * SHAKE_CYCLES * 2 * Math.PI) * (1 - input));
+        }
+    };
+
+    /**
+     * Single pulse, ends where it started
+     */
+    private static final Interpolator FLASH = new Interpolator() {
+        @Override
+        public float getInterpolation(float input) {
+            return (float) Math.sin(input * Math.PI);
+        }
+    };
+
+    private static final boolean FRAME_COUNTING_SUPPORTED =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+
+    private final View mField;
+    private final View mKeypad;
+    private final int mDuration;
+    private final float mShake;
+
+    private boolean mRunning = false;
+    private long mStartTime;
+    private FrameCounter mFrameCounter;
+
+    private final ViewPropertyAnimatorListener mListener = new ViewPropertyAnimatorListener() {
+        @Override
+        public void onAnimationStart(View view) {
+        }
+
+        @Override
+        public void onAnimationEnd(View view) {
+            finish();
+        }
+
+        @Override
+        public void onAnimationCancel(View view) {
+            finish();
+        }
+    };
+
+    /**
+     * @param field  PIN field to shake
+     * @param keypad keypad to flash
+     * @param style  style defining duration and shake distance
+     */
+    WrongEntryAnimator(View field, View keypad, KeypadStyle style) {
+        mField = field;
+        mKeypad = keypad;
+        mDuration = style.getWrongEntryDuration();
+        mShake = style.getWrongEntryShake();
+    }
+
+    /**
+     * Starts the animation, running one is restarted
+     */
+    void start() {
+        if (mDuration <= 0) {
+            return;
+        }
+        cancel();
+
+        mRunning = true;
+        mStartTime = SystemClock.uptimeMillis();
+        if (FRAME_COUNTING_SUPPORTED && PINMetrics.isEnabled()) {
+            if (mFrameCounter == null) {
+                mFrameCounter = new FrameCounter();
+            }
+            mFrameCounter.start();
+        }
+
+        ViewCompat.animate(mField)
+                .translationX(mShake)
+                .setInterpolator(SHAKE)
+                .setDuration(mDuration)
+                .withLayer()
+                .setListener(mListener)
+                .start();
+        ViewCompat.animate(mKeypad)
+                .alpha(FLASH_ALPHA)
+                .setInterpolator(FLASH)
+                .setDuration(mDuration)
+                .withLayer()
+                .start();
+    }
+
+    /**
+     * Stops the animation and puts views back to rest, e.g. when user starts typing again
+     */
+    void cancel() {
+        if (!mRunning) {
+            return;
+        }
+        ViewCompat.animate(mField).cancel();
+        ViewCompat.animate(mKeypad).cancel();
+        ViewCompat.setTranslationX(mField, 0);
+        ViewCompat.setAlpha(mKeypad, 1);
+        finish();
+    }
+
+    private void finish() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+
+        int droppedFrames = 0;
+        if (mFrameCounter != null && mFrameCounter.isRunning()) {
+            droppedFrames = mFrameCounter.stop();
+        }
+        PINMetrics.wrongEntryAnimated(SystemClock.uptimeMillis() - mStartTime, droppedFrames);
+    }
+
+    /**
+     * Counts frames skipped while animation runs, from gaps between Choreographer frame times
+     * Same callback is posted again every frame, so counting allocates nothing
+     */
+    private static class FrameCounter implements Choreographer.FrameCallback {
+        private static final long DEFAULT_FRAME_NANOS = 1000000000L / 60;
+
+        private boolean mRunning = false;
+        private long mLastFrameNanos;
+        private long mFrameNanos = DEFAULT_FRAME_NANOS;
+        private int mDropped;
+
+        void start() {
+            if (mRunning) {
+                Choreographer.getInstance().removeFrameCallback(this);
+            }
+            mRunning = true;
+            mLastFrameNanos = 0;
+            mDropped = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        boolean isRunning() {
+            return mRunning;
+        }
+
+        /**
+         * @return number of dropped frames
+         */
+        int stop() {
+            mRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+            return mDropped;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!mRunning) {
+                return;
+            }
+            if (mLastFrameNanos > 0) {
+                long gap = frameTimeNanos - mLastFrameNanos;
+                // shortest gap seen is taken as frame interval of the display
+                if (gap > 0 && gap < mFrameNanos) {
+                    mFrameNanos = gap;
+                }
+                mDropped += Math.max(0, Math.round((float) gap / mFrameNanos) - 1);
+            }
+            mLastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
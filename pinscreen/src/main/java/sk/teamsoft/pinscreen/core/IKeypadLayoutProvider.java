@@ -0,0 +1,16 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Supplies keypad layout whenever lock screen is shown
+ *
+ * @see KeypadLayout#STANDARD_PROVIDER
+ * @see KeypadLayout#SCRAMBLED_PROVIDER
+ */
+public interface IKeypadLayoutProvider {
+    /**
+     * Called on the main thread every time lock screen views are bound
+     *
+     * @return layout to display
+     */
+    KeypadLayout getLayout();
+}
@@ -0,0 +1,12 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Monotonic time source for lock evaluation
+ * Replaceable in tests to move time without waiting
+ */
+public interface IPINClock {
+    /**
+     * @return milliseconds since boot, including deep sleep
+     */
+    long elapsedRealtime();
+}
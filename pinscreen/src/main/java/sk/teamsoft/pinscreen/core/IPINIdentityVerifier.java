@@ -0,0 +1,17 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Verifier choosing among several identities (e.g. staff of shared device)
+ * Like {@link #verify(char[], int)}, {@link #identify(char[], int)} should never be called from the main thread
+ */
+public interface IPINIdentityVerifier extends IPINVerifier {
+    /**
+     * Finds identity whose PIN was entered
+     *
+     * @param entry  buffer holding entered PIN
+     * @param length number of valid characters in the buffer
+     *
+     * @return matched identity, or null if entry matches none
+     */
+    String identify(char[] entry, int length);
+}
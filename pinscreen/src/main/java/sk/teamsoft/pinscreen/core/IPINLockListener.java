@@ -0,0 +1,14 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Observes lock state transitions
+ * Register it via {@code PINScreenManager#addLockStateListener}
+ */
+public interface IPINLockListener {
+    /**
+     * Fired once per change of lock state, rapid changes are coalesced into the latest state
+     *
+     * @param locked true if app got locked, false if it got unlocked
+     */
+    void onLockStateChanged(boolean locked);
+}
@@ -0,0 +1,23 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Verifies entered PIN against stored credential
+ * Implementations may be expensive (key derivation), so {@link #verify(char[], int)}
+ * should never be called from the main thread
+ */
+public interface IPINVerifier {
+    /**
+     * @return length of the expected PIN, or 0 if it is unknown
+     */
+    int getPINLength();
+
+    /**
+     * Verifies entered PIN
+     *
+     * @param entry  buffer holding entered PIN
+     * @param length number of valid characters in the buffer
+     *
+     * @return true if entry matches stored credential
+     */
+    boolean verify(char[] entry, int length);
+}
@@ -0,0 +1,83 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Picks PBKDF2 work factor for the current device
+ * Measures derivation speed and scales iterations to hit the target verify latency
+ */
+public final class KDFCalibrator {
+
+    /**
+     * Default target latency of a single verification
+     */
+    public static final long DEFAULT_TARGET_MILLIS = 150;
+    public static final int MIN_ITERATIONS = 1000;
+    public static final int MAX_ITERATIONS = 1000000;
+
+    /**
+     * Probe derivations shorter than this are too noisy to extrapolate from
+     */
+    private static final long MIN_SAMPLE_NANOS = 20 * 1000 * 1000;
+    private static final int ROUNDING = 1000;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int SAMPLE_REPEATS = 3;
+
+    private KDFCalibrator() {
+    }
+
+    /**
+     * Measures derivation speed and computes matching work factor
+     * Takes a few hundred milliseconds, call it from background thread
+     *
+     * @param targetMillis desired verification latency
+     *
+     * @return iterations, multiple of 1000 between {@link #MIN_ITERATIONS} and {@link #MAX_ITERATIONS}
+     */
+    public static int calibrate(long targetMillis) {
+        char[] probe = new char[]{'0', '0', '0', '0'};
+        byte[] salt = PINCrypto.newSalt();
+
+        // warm up provider and JIT, first derivations are always slow
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            PINCrypto.deriveKey(probe, probe.length, salt, MIN_ITERATIONS);
+        }
+
+        int iterations = MIN_ITERATIONS;
+        long elapsed;
+        while (true) {
+            elapsed = measure(probe, salt, iterations);
+            if (elapsed >= MIN_SAMPLE_NANOS || iterations >= MAX_ITERATIONS) {
+                break;
+            }
+            iterations *= 2;
+        }
+
+        // early samples are inflated by warm-up, keep the fastest of a few repeats
+        for (int i = 0; i < SAMPLE_REPEATS; i++) {
+            elapsed = Math.min(elapsed, measure(probe, salt, iterations));
+        }
+
+        return scale(iterations, elapsed, targetMillis);
+    }
+
+    /**
+     * Extrapolates measured speed to the target latency
+     *
+     * @param iterations   measured work factor
+     * @param elapsedNanos time the measured derivation took
+     * @param targetMillis desired verification latency
+     *
+     * @return iterations, multiple of 1000 between {@link #MIN_ITERATIONS} and {@link #MAX_ITERATIONS}
+     */
+    static int scale(int iterations, long elapsedNanos, long targetMillis) {
+        // floating point, so long target latency cannot overflow
+        double target = (double) iterations * targetMillis * 1000 * 1000 / elapsedNanos;
+        long clamped = (long) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, target));
+        return (int) (clamped / ROUNDING * ROUNDING);
+    }
+
+    private static long measure(char[] probe, byte[] salt, int iterations) {
+        long start = System.nanoTime();
+        PINCrypto.deriveKey(probe, probe.length, salt, iterations);
+        return Math.max(1, System.nanoTime() - start);
+    }
+}
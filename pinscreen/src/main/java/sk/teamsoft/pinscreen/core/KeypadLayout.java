@@ -0,0 +1,139 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Immutable arrangement of keypad keys
+ * Each position holds primitive key code, digits are coded by their value,
+ * labels are shared constants, so nothing is parsed or compared as string on bind or click
+ */
+public final class KeypadLayout {
+
+    public static final int KEY_BACK = 10;
+    public static final int KEY_SUBMIT = 11;
+
+    private static final String[] LABELS = {
+            "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "<", "OK"
+    };
+
+    /**
+     * Classic phone keypad, back and submit around zero
+     */
+    public static final KeypadLayout STANDARD = new KeypadLayout(new int[]{
+            1, 2, 3,
+            4, 5, 6,
+            7, 8, 9,
+            KEY_BACK, 0, KEY_SUBMIT
+    });
+
+    /**
+     * Provides {@link #STANDARD} layout on every show
+     */
+    public static final IKeypadLayoutProvider STANDARD_PROVIDER = new IKeypadLayoutProvider() {
+        @Override
+        public KeypadLayout getLayout() {
+            return STANDARD;
+        }
+    };
+
+    /**
+     * Provides freshly scrambled digits on every show
+     */
+    public static final IKeypadLayoutProvider SCRAMBLED_PROVIDER = new IKeypadLayoutProvider() {
+        @Override
+        public KeypadLayout getLayout() {
+            return scrambled();
+        }
+    };
+
+    private static Random sRandom;
+
+    private final int[] mKeyCodes;
+
+    /**
+     * @param keyCodes key code of each position, row by row
+     */
+    public KeypadLayout(int[] keyCodes) {
+        for (int code : keyCodes) {
+            if (code < 0 || code >= LABELS.length) {
+                throw new IllegalArgumentException("Unknown key code " + code);
+            }
+        }
+        mKeyCodes = Arrays.copyOf(keyCodes, keyCodes.length);
+    }
+
+    /**
+     * Standard layout with digits shuffled among digit positions
+     * Back and submit keep their positions, so the keypad stays familiar
+     *
+     * @return newly shuffled layout
+     */
+    public static KeypadLayout scrambled() {
+        return scrambled(getRandom());
+    }
+
+    /**
+     * @param random source of randomness
+     *
+     * @return standard layout with digits shuffled by given random
+     */
+    public static KeypadLayout scrambled(Random random) {
+        int[] codes = STANDARD.mKeyCodes.clone();
+        // Fisher-Yates over digit positions only
+        for (int i = codes.length - 1; i > 0; i--) {
+            if (!isDigit(codes[i])) {
+                continue;
+            }
+            int j = random.nextInt(i + 1);
+            while (!isDigit(codes[j])) {
+                j = random.nextInt(i + 1);
+            }
+            int tmp = codes[i];
+            codes[i] = codes[j];
+            codes[j] = tmp;
+        }
+        return new KeypadLayout(codes);
+    }
+
+    private static synchronized Random getRandom() {
+        if (sRandom == null) {
+            sRandom = new SecureRandom();
+        }
+        return sRandom;
+    }
+
+    /**
+     * @param keyCode key code
+     *
+     * @return true if key enters a digit, false for functional keys and unknown codes
+     */
+    public static boolean isDigit(int keyCode) {
+        return keyCode >= 0 && keyCode < KEY_BACK;
+    }
+
+    /**
+     * @param keyCode digit key code
+     *
+     * @return entered character
+     */
+    public static char toChar(int keyCode) {
+        return (char) ('0' + keyCode);
+    }
+
+    /**
+     * @return number of keys
+     */
+    public int size() {
+        return mKeyCodes.length;
+    }
+
+    public int getKeyCode(int position) {
+        return mKeyCodes[position];
+    }
+
+    public String getLabel(int position) {
+        return LABELS[mKeyCodes[position]];
+    }
+}
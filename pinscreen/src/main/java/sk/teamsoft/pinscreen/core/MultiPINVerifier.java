@@ -0,0 +1,200 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifier matching entry against salted credentials of many identities
+ * Every credential has its own salt, so each one costs a full key derivation,
+ * derivations are therefore split across cores and search stops once no earlier credential can match
+ * If several identities share the PIN, the first one in iteration order of the map wins
+ */
+public class MultiPINVerifier implements IPINIdentityVerifier {
+
+    private static final int NO_MATCH = Integer.MAX_VALUE;
+
+    private final String[] mIdentities;
+    private final PINCredential[] mCredentials;
+    private final ExecutorService mExecutor;
+    private final int mParallelism;
+    private final int mPINLength;
+
+    /**
+     * Uses shared {@link PINExecutors#parallel()} pool
+     *
+     * @param credentials credentials by identity
+     */
+    public MultiPINVerifier(Map<String, PINCredential> credentials) {
+        this(credentials, PINExecutors.parallel(), PINExecutors.parallelism());
+    }
+
+    /**
+     * @param credentials credentials by identity, copied
+     * @param executor    executor running the derivations
+     * @param parallelism number of parts the search is split into, 1 searches on the calling thread only
+     */
+    public MultiPINVerifier(Map<String, PINCredential> credentials, ExecutorService executor, int parallelism) {
+        if (credentials == null || credentials.isEmpty()) {
+            throw new IllegalArgumentException("Credentials must not be empty");
+        }
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+
+        int size = credentials.size();
+        mIdentities = new String[size];
+        mCredentials = new PINCredential[size];
+        int length = 0;
+        int i = 0;
+        for (Map.Entry<String, PINCredential> entry : credentials.entrySet()) {
+            if (entry.getKey() == null || entry.getValue() == null) {
+                throw new IllegalArgumentException("Identity and credential must not be null");
+            }
+            mIdentities[i] = entry.getKey();
+            mCredentials[i] = entry.getValue();
+            length = Math.max(length, entry.getValue().getLength());
+            i++;
+        }
+        mPINLength = length;
+        mExecutor = executor;
+        mParallelism = Math.min(parallelism, size);
+    }
+
+    /**
+     * @return credentials by identity
+     */
+    public Map<String, PINCredential> getCredentials() {
+        Map<String, PINCredential> credentials = new LinkedHashMap<>(mIdentities.length);
+        for (int i = 0; i < mIdentities.length; i++) {
+            credentials.put(mIdentities[i], mCredentials[i]);
+        }
+        return Collections.unmodifiableMap(credentials);
+    }
+
+    /**
+     * @return length of the longest PIN, shorter ones have to be submitted explicitly
+     */
+    @Override
+    public int getPINLength() {
+        return mPINLength;
+    }
+
+    @Override
+    public boolean verify(char[] entry, int length) {
+        return identify(entry, length) != null;
+    }
+
+    @Override
+    public String identify(char[] entry, int length) {
+        if (mParallelism == 1) {
+            for (int i = 0; i < mCredentials.length; i++) {
+                if (mCredentials[i].matches(entry, length)) {
+                    return mIdentities[i];
+                }
+            }
+            return null;
+        }
+
+        Search search = new Search(entry, length, mParallelism);
+        // calling thread takes the first part, so one pool thread fewer is needed
+        for (int part = 1; part < mParallelism; part++) {
+            Part task = new Part(search, part);
+            try {
+                mExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.run();
+            }
+        }
+        new Part(search, 0).run();
+        int match = search.await();
+        return match != NO_MATCH ? mIdentities[match] : null;
+    }
+
+    /**
+     * State of single search shared by its parts
+     * Lowest matching index is kept, so result does not depend on which part finishes first
+     * Entry is copied, so caller may wipe its buffer as soon as result is known,
+     * copy is wiped by the last part to finish
+     */
+    private static final class Search {
+        final char[] entry;
+        final int length;
+        final AtomicInteger match = new AtomicInteger(NO_MATCH);
+        final AtomicInteger running;
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean cancelled = false;
+
+        Search(char[] entry, int length, int parts) {
+            this.entry = new char[length];
+            System.arraycopy(entry, 0, this.entry, 0, length);
+            this.length = length;
+            running = new AtomicInteger(parts);
+        }
+
+        /**
+         * @return false if credential at given index cannot change the result
+         */
+        boolean isNeeded(int index) {
+            return !cancelled && index < match.get();
+        }
+
+        void found(int index) {
+            int current = match.get();
+            while (index < current && !match.compareAndSet(current, index)) {
+                current = match.get();
+            }
+        }
+
+        void partFinished() {
+            if (running.decrementAndGet() == 0) {
+                PINCrypto.wipe(entry);
+                done.countDown();
+            }
+        }
+
+        /**
+         * @return lowest matched index, or {@link #NO_MATCH} if entry matches none
+         */
+        int await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                // stop remaining parts, interruption means nobody waits for the result
+                cancelled = true;
+                Thread.currentThread().interrupt();
+            }
+            return match.get();
+        }
+    }
+
+    /**
+     * Every n-th credential starting at given offset, so parts stay balanced
+     */
+    private final class Part implements Runnable {
+        private final Search mSearch;
+        private final int mOffset;
+
+        Part(Search search, int offset) {
+            mSearch = search;
+            mOffset = offset;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (int i = mOffset; i < mCredentials.length && mSearch.isNeeded(i); i += mParallelism) {
+                    if (mCredentials[i].matches(mSearch.entry, mSearch.length)) {
+                        mSearch.found(i);
+                    }
+                }
+            } finally {
+                mSearch.partFinished();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Verifier checking entry against salted PBKDF2 hash
+ */
+public class PBKDF2PINVerifier implements IPINVerifier {
+
+    /**
+     * Default work factor
+     */
+    public static final int DEFAULT_ITERATIONS = 10000;
+
+    private final PINCredential mCredential;
+
+    public PBKDF2PINVerifier(PINCredential credential) {
+        if (credential == null) {
+            throw new IllegalArgumentException("Credential must not be null");
+        }
+        mCredential = credential;
+    }
+
+    public PINCredential getCredential() {
+        return mCredential;
+    }
+
+    @Override
+    public int getPINLength() {
+        return mCredential.getLength();
+    }
+
+    @Override
+    public boolean verify(char[] entry, int length) {
+        return mCredential.matches(entry, length);
+    }
+}
@@ -0,0 +1,131 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Immutable salted PIN hash together with its derivation parameters
+ * Use {@link #encode()} and {@link #decode(String)} to persist it
+ */
+public final class PINCredential {
+
+    private static final String SCHEME = "pbkdf2";
+    private static final String SEPARATOR = "$";
+    /**
+     * Calibration differs run to run, work factor within this fraction of the preferred one is kept
+     */
+    private static final float REHASH_TOLERANCE = 0.25f;
+
+    private final byte[] mSalt;
+    private final byte[] mHash;
+    private final int mIterations;
+    private final int mLength;
+
+    PINCredential(byte[] salt, byte[] hash, int iterations, int length) {
+        mSalt = salt;
+        mHash = hash;
+        mIterations = iterations;
+        mLength = length;
+    }
+
+    /**
+     * Derives new credential from PIN
+     * This is expensive, call it from background thread
+     *
+     * @param pin        buffer holding PIN
+     * @param length     number of valid characters in the buffer
+     * @param iterations work factor
+     *
+     * @return new credential
+     */
+    public static PINCredential create(char[] pin, int length, int iterations) {
+        byte[] salt = PINCrypto.newSalt();
+        return new PINCredential(salt, PINCrypto.deriveKey(pin, length, salt, iterations), iterations, length);
+    }
+
+    /**
+     * @see #create(char[], int, int)
+     */
+    public static PINCredential create(CharSequence pin, int iterations) {
+        char[] buffer = new char[pin.length()];
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = pin.charAt(i);
+        }
+        try {
+            return create(buffer, buffer.length, iterations);
+        } finally {
+            PINCrypto.wipe(buffer);
+        }
+    }
+
+    /**
+     * Parses credential created by {@link #encode()}
+     *
+     * @param encoded encoded credential
+     *
+     * @return credential
+     * @throws IllegalArgumentException if encoded value is malformed
+     */
+    public static PINCredential decode(String encoded) {
+        String[] parts = encoded.split("\\" + SEPARATOR);
+        if (parts.length != 5 || !SCHEME.equals(parts[0])) {
+            throw new IllegalArgumentException("Malformed PIN credential");
+        }
+        try {
+            return new PINCredential(PINCrypto.fromHex(parts[3]), PINCrypto.fromHex(parts[4]),
+                    Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed PIN credential", e);
+        }
+    }
+
+    /**
+     * @return string representation suitable for storage
+     */
+    public String encode() {
+        return SCHEME + SEPARATOR + mIterations + SEPARATOR + mLength + SEPARATOR
+                + PINCrypto.toHex(mSalt) + SEPARATOR + PINCrypto.toHex(mHash);
+    }
+
+    /**
+     * @return work factor this credential was derived with
+     */
+    public int getIterations() {
+        return mIterations;
+    }
+
+    /**
+     * Checks whether credential was derived with outdated parameters
+     * Only noticeably weaker credentials are re-derived, never downgraded to fewer iterations
+     *
+     * @param iterations currently preferred work factor
+     *
+     * @return true if credential should be re-derived
+     */
+    public boolean needsRehash(int iterations) {
+        return mIterations < iterations * (1 - REHASH_TOLERANCE) || mHash.length * 8 != PINCrypto.KEY_LENGTH_BITS;
+    }
+
+    /**
+     * @return PIN length
+     */
+    public int getLength() {
+        return mLength;
+    }
+
+    /**
+     * Checks entry against this credential
+     * This is expensive, call it from background thread, entry of different length is refused right away
+     *
+     * @param entry  buffer holding entered PIN
+     * @param length number of valid characters in the buffer
+     *
+     * @return true if entry matches
+     */
+    public boolean matches(char[] entry, int length) {
+        // length is stored in plain text anyway, entry of other length is refused without derivation
+        if (mLength != 0 && length != mLength) {
+            return false;
+        }
+        // key length is taken from the hash, so credentials derived with older key length still match
+        byte[] derived = PINCrypto.deriveKey(entry, length, mSalt, mIterations, mHash.length * 8);
+        return PINCrypto.constantTimeEquals(derived, mHash);
+    }
+}
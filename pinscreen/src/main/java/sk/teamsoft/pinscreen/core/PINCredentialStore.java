@@ -0,0 +1,200 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Persistent store of single hashed credential
+ * Only encoded {@link PINCredential} (salt, hash and parameters) is written, never the PIN
+ * <p>
+ * File is read lazily on first {@link #get()}, then in-memory snapshot is used
+ * Writes go to the executor, bursts of writes are batched into one write of the latest snapshot,
+ * which is written to temporary file and renamed over the store, so the file is never half-written
+ */
+public final class PINCredentialStore {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+    private final File mTempFile;
+    private final Executor mExecutor;
+    private final AtomicBoolean mWriteScheduled = new AtomicBoolean(false);
+
+    private final Object mLock = new Object();
+    private boolean mLoaded = false;
+    private PINCredential mCredential;
+
+    private final Runnable mWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            mWriteScheduled.set(false);
+            write(peek());
+        }
+    };
+
+    /**
+     * @param file     store file
+     * @param executor background executor for loading and writing
+     */
+    public PINCredentialStore(File file, Executor executor) {
+        mFile = file;
+        mTempFile = new File(file.getPath() + ".tmp");
+        mExecutor = executor;
+    }
+
+    /**
+     * Loads the store in background, so later {@link #get()} does not touch the disk
+     */
+    public void preload() {
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                get();
+            }
+        });
+    }
+
+    /**
+     * Runs the task once stored credential is in memory, loading the store in background if needed
+     *
+     * @param task     task to run
+     * @param executor executor to run the task on, e.g. main thread
+     */
+    public void whenLoaded(final Runnable task, final Executor executor) {
+        if (isLoaded()) {
+            executor.execute(task);
+            return;
+        }
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                get();
+                executor.execute(task);
+            }
+        });
+    }
+
+    /**
+     * Returns stored credential, reading the file on first access
+     * May block on disk I/O, never call it from the main thread
+     *
+     * @return credential, or null if none is stored
+     */
+    public PINCredential get() {
+        synchronized (mLock) {
+            if (!mLoaded) {
+                mCredential = read();
+                mLoaded = true;
+            }
+            return mCredential;
+        }
+    }
+
+    /**
+     * Never blocks
+     *
+     * @return in-memory snapshot, or null if nothing is stored or store was not loaded yet
+     */
+    public PINCredential peek() {
+        synchronized (mLock) {
+            return mCredential;
+        }
+    }
+
+    /**
+     * @return true once stored credential is in memory
+     */
+    public boolean isLoaded() {
+        synchronized (mLock) {
+            return mLoaded;
+        }
+    }
+
+    /**
+     * Replaces stored credential, snapshot is updated immediately and file is written in background
+     *
+     * @param credential new credential, null to clear the store
+     */
+    public void put(PINCredential credential) {
+        synchronized (mLock) {
+            mCredential = credential;
+            mLoaded = true;
+        }
+        if (mWriteScheduled.compareAndSet(false, true)) {
+            mExecutor.execute(mWriteTask);
+        }
+    }
+
+    /**
+     * Removes stored credential
+     */
+    public void clear() {
+        put(null);
+    }
+
+    private PINCredential read() {
+        if (!mFile.exists()) {
+            return null;
+        }
+
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(mFile), UTF_8));
+            String line = reader.readLine();
+            return line != null ? PINCredential.decode(line.trim()) : null;
+        } catch (IOException | IllegalArgumentException e) {
+            // unreadable store is treated as empty
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    private void write(PINCredential credential) {
+        if (credential == null) {
+            //noinspection ResultOfMethodCallIgnored
+            mFile.delete();
+            return;
+        }
+
+        FileOutputStream out = null;
+        try {
+            File dir = mFile.getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Cannot create " + dir);
+            }
+            out = new FileOutputStream(mTempFile);
+            out.write(credential.encode().getBytes(UTF_8));
+            out.flush();
+            out.getFD().sync();
+            out.close();
+            out = null;
+            if (!mTempFile.renameTo(mFile)) {
+                throw new IOException("Cannot replace " + mFile);
+            }
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            mTempFile.delete();
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
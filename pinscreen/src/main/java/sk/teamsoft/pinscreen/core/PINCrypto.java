@@ -0,0 +1,137 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Crypto helpers used by PIN verifiers
+ * Comparisons are done in constant time, so timing does not reveal matching prefix
+ */
+public final class PINCrypto {
+
+    /**
+     * Key derivation algorithm
+     * PBKDF2WithHmacSHA1 is the only variant available on all supported API levels
+     */
+    public static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA1";
+    public static final int SALT_LENGTH = 16;
+    /**
+     * Single HMAC-SHA1 block, longer keys only multiply work of the defender,
+     * attacker can reject a candidate from the first block alone
+     */
+    public static final int KEY_LENGTH_BITS = 160;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final SecureRandom sRandom = new SecureRandom();
+
+    private PINCrypto() {
+    }
+
+    /**
+     * @return new random salt
+     */
+    public static byte[] newSalt() {
+        byte[] salt = new byte[SALT_LENGTH];
+        sRandom.nextBytes(salt);
+        return salt;
+    }
+
+    /**
+     * Derives key from PIN with PBKDF2
+     *
+     * @param pin        buffer holding PIN
+     * @param length     number of valid characters in the buffer
+     * @param salt       salt
+     * @param iterations work factor
+     *
+     * @return derived key of {@link #KEY_LENGTH_BITS}
+     */
+    public static byte[] deriveKey(char[] pin, int length, byte[] salt, int iterations) {
+        return deriveKey(pin, length, salt, iterations, KEY_LENGTH_BITS);
+    }
+
+    /**
+     * @param keyLengthBits length of derived key, e.g. to check credentials created with other key length
+     *
+     * @see #deriveKey(char[], int, byte[], int)
+     */
+    static byte[] deriveKey(char[] pin, int length, byte[] salt, int iterations, int keyLengthBits) {
+        char[] password = Arrays.copyOf(pin, length);
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLengthBits);
+        try {
+            return SecretKeyFactory.getInstance(KDF_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PIN key derivation failed", e);
+        } finally {
+            spec.clearPassword();
+            wipe(password);
+        }
+    }
+
+    /**
+     * Compares two arrays in constant time
+     *
+     * @return true if both arrays have the same content
+     */
+    public static boolean constantTimeEquals(byte[] a, byte[] b) {
+        int diff = a.length ^ b.length;
+        for (int i = 0; i < a.length && i < b.length; i++) {
+            diff |= a[i] ^ b[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Compares entered characters to expected value in constant time
+     * Time depends only on the expected length
+     *
+     * @return true if entry matches expected value
+     */
+    public static boolean constantTimeEquals(char[] entry, int length, char[] expected) {
+        int diff = length ^ expected.length;
+        for (int i = 0; i < expected.length; i++) {
+            diff |= (i < length ? entry[i] : 0) ^ expected[i];
+        }
+        return diff == 0;
+    }
+
+    /**
+     * Overwrites buffer content
+     *
+     * @param buffer buffer to wipe, may be null
+     */
+    public static void wipe(char[] buffer) {
+        if (buffer != null) {
+            Arrays.fill(buffer, '\0');
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[i * 2] = HEX[(bytes[i] >> 4) & 0x0f];
+            out[i * 2 + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(out);
+    }
+
+    static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid hex string");
+        }
+        byte[] out = new byte[hex.length() / 2];
+        for (int i = 0; i < out.length; i++) {
+            int hi = Character.digit(hex.charAt(i * 2), 16);
+            int lo = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("Invalid hex string");
+            }
+            out[i] = (byte) ((hi << 4) | lo);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,216 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Entry state machine of the lock screen, free of Android classes
+ * Handles digits, backspace, submit and setup/verify branching over fixed {@link PINValueBuffer},
+ * hosts only render the value and run verification when asked to
+ * <p>
+ * Entered value is wiped whenever it is not needed anymore
+ * Not thread-safe, use from single (main) thread
+ */
+public final class PINEntrySession {
+
+    /**
+     * Key was refused (session busy, value full or empty), nothing changed
+     */
+    public static final int ACTION_NONE = 0;
+    /**
+     * Value changed, host should render it
+     */
+    public static final int ACTION_CHANGED = 1;
+    /**
+     * Value changed and reached maximum length, verification may start ahead of submit
+     */
+    public static final int ACTION_FILLED = 2;
+    /**
+     * New PIN was submitted in setup mode, host reads it from {@link #getValue()} and calls {@link #reset()}
+     */
+    public static final int ACTION_SETUP = 3;
+    /**
+     * Value was submitted for verification, host reports result via {@link #onVerified(boolean)}
+     */
+    public static final int ACTION_VERIFY = 4;
+
+    /**
+     * Accepting keys
+     */
+    public static final int STATE_ENTRY = 0;
+    /**
+     * Waiting for verification result, keys are refused
+     */
+    public static final int STATE_VERIFYING = 1;
+    /**
+     * PIN was accepted or set up, keys are refused until {@link #reset()}
+     */
+    public static final int STATE_DONE = 2;
+
+    private final PINValueBuffer mValue;
+    private int mMaxLength;
+    private boolean mSetup = false;
+    private boolean mAutoSubmit = false;
+    private int mState = STATE_ENTRY;
+
+    /**
+     * Changes with every edit of the value, so results computed for older value can be discarded
+     */
+    private int mGeneration = 0;
+
+    /**
+     * @param maxLength maximum PIN length
+     */
+    public PINEntrySession(int maxLength) {
+        mMaxLength = maxLength;
+        mValue = new PINValueBuffer(maxLength);
+    }
+
+    /**
+     * Characters over new maximum length are wiped
+     *
+     * @param maxLength maximum PIN length
+     */
+    public void setMaxLength(int maxLength) {
+        mMaxLength = maxLength;
+        mValue.ensureCapacity(maxLength);
+        if (mValue.length() > maxLength) {
+            while (mValue.length() > maxLength) {
+                mValue.deleteLast();
+            }
+            mGeneration++;
+        }
+    }
+
+    public int getMaxLength() {
+        return mMaxLength;
+    }
+
+    /**
+     * @param setup true if new PIN is being set up instead of verified
+     */
+    public void setSetup(boolean setup) {
+        mSetup = setup;
+    }
+
+    public boolean isSetup() {
+        return mSetup;
+    }
+
+    /**
+     * @param autoSubmit true if value is submitted for verification as soon as it is full
+     */
+    public void setAutoSubmit(boolean autoSubmit) {
+        mAutoSubmit = autoSubmit;
+    }
+
+    public boolean isAutoSubmit() {
+        return mAutoSubmit;
+    }
+
+    /**
+     * @return one of STATE_ constants
+     */
+    public int getState() {
+        return mState;
+    }
+
+    /**
+     * @return generation of the value, changes with every edit
+     */
+    public int getGeneration() {
+        return mGeneration;
+    }
+
+    /**
+     * @return entered value, valid until next call changing the session
+     */
+    public PINValueBuffer getValue() {
+        return mValue;
+    }
+
+    /**
+     * Handles single key
+     *
+     * @param keyCode digit value, {@link KeypadLayout#KEY_BACK} or {@link KeypadLayout#KEY_SUBMIT}
+     *
+     * @return one of ACTION_ constants
+     */
+    public int onKey(int keyCode) {
+        if (mState != STATE_ENTRY) {
+            return ACTION_NONE;
+        }
+
+        switch (keyCode) {
+            // delete the last character from PIN
+            case KeypadLayout.KEY_BACK:
+                if (!mValue.deleteLast()) {
+                    return ACTION_NONE;
+                }
+                mGeneration++;
+                return ACTION_CHANGED;
+
+            case KeypadLayout.KEY_SUBMIT:
+                return submit();
+
+            // digit clicked, append it to the value
+            default:
+                if (!KeypadLayout.isDigit(keyCode) || mValue.length() >= mMaxLength) {
+                    return ACTION_NONE;
+                }
+                mValue.append(KeypadLayout.toChar(keyCode));
+                mGeneration++;
+                if (mValue.length() < mMaxLength || mSetup) {
+                    return ACTION_CHANGED;
+                }
+                return mAutoSubmit ? submit() : ACTION_FILLED;
+        }
+    }
+
+    /**
+     * Reports result of verification requested by {@link #ACTION_VERIFY}
+     * Value is wiped, wrong entry returns session to {@link #STATE_ENTRY}
+     *
+     * @param correct true if entered PIN was correct
+     */
+    public void onVerified(boolean correct) {
+        if (mState != STATE_VERIFYING) {
+            return;
+        }
+        wipe();
+        mState = correct ? STATE_DONE : STATE_ENTRY;
+    }
+
+    /**
+     * Replaces value, e.g. when restoring saved state
+     * Characters over maximum length are dropped
+     *
+     * @param value value to restore
+     */
+    public void restore(CharSequence value) {
+        wipe();
+        mState = STATE_ENTRY;
+        for (int i = 0; value != null && i < value.length() && i < mMaxLength; i++) {
+            mValue.append(value.charAt(i));
+        }
+    }
+
+    /**
+     * Wipes the value and starts accepting keys again
+     */
+    public void reset() {
+        wipe();
+        mState = STATE_ENTRY;
+    }
+
+    private int submit() {
+        if (mSetup) {
+            mState = STATE_DONE;
+            return ACTION_SETUP;
+        }
+        mState = STATE_VERIFYING;
+        return ACTION_VERIFY;
+    }
+
+    private void wipe() {
+        mValue.clear();
+        mGeneration++;
+    }
+}
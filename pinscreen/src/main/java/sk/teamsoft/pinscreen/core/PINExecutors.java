@@ -0,0 +1,66 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executors for expensive PIN operations (key derivation)
+ * All threads are low-priority daemons, so verification never competes with UI rendering
+ */
+public final class PINExecutors {
+
+    private static final ExecutorService sBackground = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "pinscreen-background");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    /**
+     * Created on first use, most apps never need it
+     */
+    private static final class ParallelHolder {
+        static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+        static final ExecutorService POOL = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "pinscreen-parallel-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    private PINExecutors() {
+    }
+
+    /**
+     * @return shared background executor
+     */
+    public static ExecutorService background() {
+        return sBackground;
+    }
+
+    /**
+     * @return shared pool with one thread per core, for work split into independent parts
+     */
+    public static ExecutorService parallel() {
+        return ParallelHolder.POOL;
+    }
+
+    /**
+     * @return number of threads of {@link #parallel()}
+     */
+    public static int parallelism() {
+        return ParallelHolder.PARALLELISM;
+    }
+}
@@ -0,0 +1,122 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Registry of {@link IPINLockListener}s of a single {@link PINLockTimer}
+ * Listeners are weakly referenced and kept in copy-on-write list, so dispatch never locks
+ * and registered Activities are not leaked
+ * Each listener has at most one notification queued on its executor, which reads the latest state
+ * when it runs, so bursts of changes are coalesced
+ * Delivered state includes delayed lock whose delay elapsed, see {@link PINLockTimer#isLocked()}
+ */
+public final class PINLockObservers {
+
+    private final PINLockTimer mTimer;
+    private final CopyOnWriteArrayList<Registration> mRegistrations = new CopyOnWriteArrayList<>();
+
+    public PINLockObservers(PINLockTimer timer) {
+        mTimer = timer;
+    }
+
+    /**
+     * Registers listener, nothing happens if it is registered already
+     * Only weak reference is kept, caller has to keep listener reachable
+     *
+     * @param listener listener
+     * @param executor executor to notify listener on
+     */
+    public synchronized void add(IPINLockListener listener, Executor executor) {
+        if (find(listener) == null) {
+            mRegistrations.add(new Registration(listener, executor, mTimer.isLocked()));
+        }
+    }
+
+    /**
+     * @param listener listener to unregister
+     */
+    public synchronized void remove(IPINLockListener listener) {
+        Registration registration = find(listener);
+        if (registration != null) {
+            mRegistrations.remove(registration);
+        }
+    }
+
+    /**
+     * Schedules notification of all listeners whose last delivered state may be outdated
+     * Safe to call from any thread
+     */
+    public void dispatch() {
+        for (Registration registration : mRegistrations) {
+            if (registration.mListener.get() == null) {
+                mRegistrations.remove(registration);
+            } else {
+                registration.schedule();
+            }
+        }
+    }
+
+    /**
+     * @return number of registrations, including those of collected listeners not pruned yet
+     */
+    int size() {
+        return mRegistrations.size();
+    }
+
+    private Registration find(IPINLockListener listener) {
+        for (Registration registration : mRegistrations) {
+            if (registration.mListener.get() == listener) {
+                return registration;
+            }
+        }
+        return null;
+    }
+
+    private final class Registration implements Runnable {
+        final WeakReference<IPINLockListener> mListener;
+        final Executor mExecutor;
+        final AtomicBoolean mScheduled = new AtomicBoolean(false);
+        boolean mDelivered;
+
+        Registration(IPINLockListener listener, Executor executor, boolean locked) {
+            mListener = new WeakReference<>(listener);
+            mExecutor = executor;
+            mDelivered = locked;
+        }
+
+        void schedule() {
+            if (mScheduled.compareAndSet(false, true)) {
+                try {
+                    mExecutor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // nothing is queued, so the next dispatch has to try again
+                    mScheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Delivery is serialized per listener, so it never sees states out of order
+         * even on multi-threaded executor
+         */
+        @Override
+        public synchronized void run() {
+            mScheduled.set(false);
+            IPINLockListener listener = mListener.get();
+            if (listener == null) {
+                mRegistrations.remove(this);
+                return;
+            }
+
+            boolean locked = mTimer.isLocked();
+            if (locked != mDelivered) {
+                mDelivered = locked;
+                listener.onLockStateChanged(locked);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Immutable snapshot of lock state
+ * Replaced as a whole on every change, so readers never see it half-updated
+ */
+public final class PINLockState {
+
+    /**
+     * Value of {@link #getScheduledAt()} when no delayed lock is pending
+     */
+    public static final long NOT_SCHEDULED = -1;
+
+    static final PINLockState INITIAL = new PINLockState(false, NOT_SCHEDULED, 0);
+
+    private final boolean mLocked;
+    private final long mScheduledAt;
+    private final long mDelayMillis;
+
+    PINLockState(boolean locked, long scheduledAt, long delayMillis) {
+        mLocked = locked;
+        mScheduledAt = scheduledAt;
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * @return true if locked, not counting pending delayed lock
+     */
+    public boolean isLocked() {
+        return mLocked;
+    }
+
+    /**
+     * @return clock time of pending delayed lock, or {@link #NOT_SCHEDULED}
+     */
+    public long getScheduledAt() {
+        return mScheduledAt;
+    }
+
+    public long getDelayMillis() {
+        return mDelayMillis;
+    }
+
+    public boolean isScheduled() {
+        return mScheduledAt != NOT_SCHEDULED;
+    }
+
+    PINLockState withLocked(boolean locked) {
+        return new PINLockState(locked, mScheduledAt, mDelayMillis);
+    }
+
+    PINLockState withScheduledAt(long scheduledAt) {
+        return new PINLockState(mLocked, scheduledAt, mDelayMillis);
+    }
+
+    PINLockState withDelay(long delayMillis) {
+        return new PINLockState(mLocked, mScheduledAt, delayMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "PINLockState{locked=" + mLocked + ", scheduledAt=" + mScheduledAt
+                + ", delayMillis=" + mDelayMillis + "}";
+    }
+}
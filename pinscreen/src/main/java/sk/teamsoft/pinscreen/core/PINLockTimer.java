@@ -0,0 +1,196 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock state evaluated lazily from the clock
+ * Delayed lock only stores the time it was requested, lock takes effect
+ * the first time state is read after the delay elapsed, so no timer or wakeup is needed
+ * <p>
+ * Thread-safe without locks: state is an immutable {@link PINLockState} swapped by compare-and-set,
+ * reads never block and can be done from any thread
+ */
+public final class PINLockTimer {
+
+    /**
+     * Receives lock state changes
+     * Called on the thread which caused the change, possibly concurrently and out of order,
+     * use {@link #getState()} when the latest state is needed
+     */
+    public interface Callback {
+        /**
+         * Fired when stored state changed and should be persisted
+         *
+         * @param state new state
+         */
+        void onStateChanged(PINLockState state);
+
+        /**
+         * Fired when pending delayed lock takes effect
+         *
+         * @param delayMillis   configured delay
+         * @param elapsedMillis time elapsed since lock was requested until it was evaluated
+         */
+        void onDelayElapsed(long delayMillis, long elapsedMillis);
+    }
+
+    private final AtomicReference<PINLockState> mState = new AtomicReference<>(PINLockState.INITIAL);
+    private final Callback mCallback;
+    private volatile IPINClock mClock;
+
+    /**
+     * @param clock    time source
+     * @param callback receiver of state changes, may be null
+     */
+    public PINLockTimer(IPINClock clock, Callback callback) {
+        mClock = clock;
+        mCallback = callback;
+    }
+
+    public void setClock(IPINClock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * @param delayMillis delay of {@link #lockWithDelay()}
+     */
+    public void setDelay(long delayMillis) {
+        PINLockState current;
+        do {
+            current = mState.get();
+        } while (!mState.compareAndSet(current, current.withDelay(delayMillis)));
+    }
+
+    public long getDelay() {
+        return mState.get().getDelayMillis();
+    }
+
+    /**
+     * Restores persisted state without notifying callback
+     * Configured delay is kept
+     *
+     * @param locked      true if locked
+     * @param scheduledAt clock time of pending delayed lock, or {@link PINLockState#NOT_SCHEDULED}
+     */
+    public void restore(boolean locked, long scheduledAt) {
+        PINLockState current;
+        do {
+            current = mState.get();
+        } while (!mState.compareAndSet(current,
+                new PINLockState(locked, scheduledAt, current.getDelayMillis())));
+    }
+
+    /**
+     * @return current stored state, pending delayed lock is not evaluated
+     */
+    public PINLockState getState() {
+        return mState.get();
+    }
+
+    /**
+     * @return true if locked, pending delayed lock is applied if its delay elapsed
+     */
+    public boolean isLocked() {
+        PINLockState current = mState.get();
+        if (!current.isScheduled()) {
+            // fast path, nothing to evaluate
+            return current.isLocked();
+        }
+        return settle().isLocked();
+    }
+
+    /**
+     * Locks immediately
+     */
+    public void lock() {
+        setLocked(true);
+    }
+
+    /**
+     * Unlocks, delayed lock which already elapsed is consumed first
+     * Pending delayed lock which did not elapse yet stays scheduled
+     */
+    public void unlock() {
+        setLocked(false);
+    }
+
+    /**
+     * Schedules lock after configured delay, measured from now
+     * Calling it again restarts the delay
+     */
+    public void lockWithDelay() {
+        long now = mClock.elapsedRealtime();
+        PINLockState current;
+        PINLockState next;
+        do {
+            current = mState.get();
+            next = current.withScheduledAt(now);
+        } while (!mState.compareAndSet(current, next));
+        notifyChanged(next);
+    }
+
+    /**
+     * Cancels pending delayed lock which did not elapse yet
+     * Delayed lock which already elapsed is applied instead
+     */
+    public void cancelDelayed() {
+        PINLockState current = settle();
+        PINLockState next;
+        while (current.isScheduled()) {
+            next = current.withScheduledAt(PINLockState.NOT_SCHEDULED);
+            if (mState.compareAndSet(current, next)) {
+                notifyChanged(next);
+                return;
+            }
+            current = settle();
+        }
+    }
+
+    private void setLocked(boolean locked) {
+        PINLockState current = settle();
+        PINLockState next;
+        while (current.isLocked() != locked) {
+            next = current.withLocked(locked);
+            if (mState.compareAndSet(current, next)) {
+                notifyChanged(next);
+                return;
+            }
+            current = settle();
+        }
+    }
+
+    /**
+     * Applies pending delayed lock if it elapsed
+     * Clock running behind the request means device rebooted meanwhile, which counts as elapsed
+     *
+     * @return settled state
+     */
+    private PINLockState settle() {
+        while (true) {
+            PINLockState current = mState.get();
+            if (!current.isScheduled()) {
+                return current;
+            }
+
+            long elapsed = mClock.elapsedRealtime() - current.getScheduledAt();
+            if (elapsed >= 0 && elapsed < current.getDelayMillis()) {
+                return current;
+            }
+
+            PINLockState next = new PINLockState(true, PINLockState.NOT_SCHEDULED, current.getDelayMillis());
+            if (mState.compareAndSet(current, next)) {
+                notifyChanged(next);
+                if (mCallback != null) {
+                    mCallback.onDelayElapsed(current.getDelayMillis(), Math.max(elapsed, 0));
+                }
+                return next;
+            }
+        }
+    }
+
+    private void notifyChanged(PINLockState state) {
+        if (mCallback != null) {
+            mCallback.onStateChanged(state);
+        }
+    }
+}
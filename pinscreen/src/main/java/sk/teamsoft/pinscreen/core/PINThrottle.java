@@ -0,0 +1,208 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Limits PIN attempts
+ * Wrong entries are recorded in fixed-size ring buffer of timestamps, admission is checked in constant time:
+ * <ul>
+ * <li>after {@link Policy#freeAttempts} consecutive wrong entries, every next one doubles the wait,
+ * starting at {@link Policy#baseDelayMillis} and capped at {@link Policy#maxDelayMillis}</li>
+ * <li>when ring buffer holds {@link Policy#capacity} wrong entries within {@link Policy#lockoutWindowMillis},
+ * attempts are locked out until the oldest of them leaves the window</li>
+ * </ul>
+ * State is encoded into fixed-length string, so persisting it is a single small write
+ * Thread-safe
+ */
+public final class PINThrottle {
+
+    /**
+     * Immutable throttling parameters
+     */
+    public static final class Policy {
+        /**
+         * 3 free attempts, then 30 s doubling up to 1 hour, lockout for 10 wrong entries within 24 hours
+         */
+        public static final Policy DEFAULT = new Policy(10, 3, 30 * 1000L, 60 * 60 * 1000L, 24 * 60 * 60 * 1000L);
+
+        final int capacity;
+        final int freeAttempts;
+        final long baseDelayMillis;
+        final long maxDelayMillis;
+        final long lockoutWindowMillis;
+
+        /**
+         * @param capacity            number of remembered wrong entries, also lockout threshold
+         * @param freeAttempts        consecutive wrong entries allowed without waiting
+         * @param baseDelayMillis     first wait after free attempts are used
+         * @param maxDelayMillis      longest wait between attempts
+         * @param lockoutWindowMillis window in which {@code capacity} wrong entries cause lockout
+         */
+        public Policy(int capacity, int freeAttempts, long baseDelayMillis, long maxDelayMillis,
+                      long lockoutWindowMillis) {
+            if (capacity < 1 || freeAttempts < 0 || baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis) {
+                throw new IllegalArgumentException("Invalid throttle policy");
+            }
+            this.capacity = capacity;
+            this.freeAttempts = freeAttempts;
+            this.baseDelayMillis = baseDelayMillis;
+            this.maxDelayMillis = maxDelayMillis;
+            this.lockoutWindowMillis = lockoutWindowMillis;
+        }
+    }
+
+    private final Policy mPolicy;
+    private final long[] mFailures;
+    private IPINClock mClock;
+
+    /**
+     * Index of the oldest recorded wrong entry
+     */
+    private int mHead = 0;
+    private int mCount = 0;
+    private int mConsecutive = 0;
+
+    /**
+     * Clock time since which next attempt is allowed
+     */
+    private long mAllowedAt = 0;
+
+    public PINThrottle(IPINClock clock, Policy policy) {
+        mClock = clock;
+        mPolicy = policy;
+        mFailures = new long[policy.capacity];
+    }
+
+    public synchronized void setClock(IPINClock clock) {
+        mClock = clock;
+    }
+
+    /**
+     * @return milliseconds until next attempt is allowed, 0 if it is allowed now
+     */
+    public synchronized long getRemainingWait() {
+        long wait = mAllowedAt - mClock.elapsedRealtime();
+        return wait > 0 ? wait : 0;
+    }
+
+    /**
+     * @return number of consecutive wrong entries
+     */
+    public synchronized int getConsecutiveFailures() {
+        return mConsecutive;
+    }
+
+    /**
+     * Records wrong entry
+     *
+     * @return milliseconds until next attempt is allowed
+     */
+    public synchronized long recordFailure() {
+        long now = mClock.elapsedRealtime();
+        int tail = (mHead + mCount) % mFailures.length;
+        mFailures[tail] = now;
+        if (mCount < mFailures.length) {
+            mCount++;
+        } else {
+            mHead = (mHead + 1) % mFailures.length;
+        }
+        mConsecutive++;
+
+        mAllowedAt = Math.max(now + backoff(mConsecutive), lockoutEnd());
+        return mAllowedAt - now;
+    }
+
+    /**
+     * Records correct entry, which resets all limits
+     */
+    public synchronized void recordSuccess() {
+        mHead = 0;
+        mCount = 0;
+        mConsecutive = 0;
+        mAllowedAt = 0;
+    }
+
+    /**
+     * @return wait after given number of consecutive wrong entries
+     */
+    private long backoff(int consecutive) {
+        int doublings = consecutive - mPolicy.freeAttempts - 1;
+        if (doublings < 0) {
+            return 0;
+        }
+        if (doublings >= Long.numberOfLeadingZeros(mPolicy.baseDelayMillis) - 1) {
+            // shift would overflow
+            return mPolicy.maxDelayMillis;
+        }
+        return Math.min(mPolicy.baseDelayMillis << doublings, mPolicy.maxDelayMillis);
+    }
+
+    /**
+     * @return time when the oldest remembered wrong entry leaves lockout window, 0 if buffer is not full
+     */
+    private long lockoutEnd() {
+        if (mCount < mFailures.length) {
+            return 0;
+        }
+        return mFailures[mHead] + mPolicy.lockoutWindowMillis;
+    }
+
+    /**
+     * Encodes state into string of fixed length for given capacity
+     *
+     * @return encoded state
+     */
+    public synchronized String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * 4 + 8 + mFailures.length * 8);
+        buffer.putInt(mHead).putInt(mCount).putInt(mConsecutive).putLong(mAllowedAt);
+        for (long failure : mFailures) {
+            buffer.putLong(failure);
+        }
+        return PINCrypto.toHex(buffer.array());
+    }
+
+    /**
+     * Restores state saved by {@link #encode()}
+     * Timestamps ahead of the clock mean the device rebooted meanwhile,
+     * they are shifted so that pending wait starts over instead of being skipped
+     * Invalid or incompatible state is ignored
+     *
+     * @param encoded encoded state
+     */
+    public synchronized void restore(String encoded) {
+        byte[] bytes;
+        try {
+            bytes = PINCrypto.fromHex(encoded);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (bytes.length != 3 * 4 + 8 + mFailures.length * 8) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int head = buffer.getInt();
+        int count = buffer.getInt();
+        int consecutive = buffer.getInt();
+        if (head < 0 || head >= mFailures.length || count < 0 || count > mFailures.length || consecutive < 0) {
+            return;
+        }
+        long allowedAt = buffer.getLong();
+        for (int i = 0; i < mFailures.length; i++) {
+            mFailures[i] = buffer.getLong();
+        }
+        mHead = head;
+        mCount = count;
+        mConsecutive = consecutive;
+        mAllowedAt = allowedAt;
+
+        long newest = mCount > 0 ? mFailures[(mHead + mCount - 1) % mFailures.length] : 0;
+        long shift = newest - mClock.elapsedRealtime();
+        if (shift > 0) {
+            for (int i = 0; i < mFailures.length; i++) {
+                mFailures[i] -= shift;
+            }
+            mAllowedAt -= shift;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package sk.teamsoft.pinscreen.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity buffer holding entered PIN
+ * Appending, deleting, clearing and masking never allocate,
+ * content is wiped whenever it is cleared or the buffer grows
+ */
+public final class PINValueBuffer implements CharSequence {
+
+    /**
+     * Character shown instead of each entered digit
+     */
+    public static final char MASK_CHAR = '*';
+
+    private char[] mChars;
+    private char[] mMask;
+    private int mLength = 0;
+
+    private final CharSequence mMasked = new CharSequence() {
+        @Override
+        public int length() {
+            return mLength;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return mMask[index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(mMask, start, end - start);
+        }
+
+        @Override
+        public String toString() {
+            return new String(mMask, 0, mLength);
+        }
+    };
+
+    public PINValueBuffer(int capacity) {
+        mChars = new char[capacity];
+        mMask = newMask(capacity);
+    }
+
+    /**
+     * @return maximum number of characters
+     */
+    public int capacity() {
+        return mChars.length;
+    }
+
+    /**
+     * Grows the buffer if needed
+     * Old content is copied and wiped
+     *
+     * @param capacity required capacity
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity > mChars.length) {
+            char[] chars = Arrays.copyOf(mChars, capacity);
+            PINCrypto.wipe(mChars);
+            mChars = chars;
+            mMask = newMask(capacity);
+        }
+    }
+
+    /**
+     * Appends single character
+     *
+     * @param c character
+     *
+     * @return false if buffer is full
+     */
+    public boolean append(char c) {
+        if (mLength >= mChars.length) {
+            return false;
+        }
+        mChars[mLength++] = c;
+        return true;
+    }
+
+    /**
+     * Deletes the last character
+     *
+     * @return false if buffer is empty
+     */
+    public boolean deleteLast() {
+        if (mLength == 0) {
+            return false;
+        }
+        mChars[--mLength] = '\0';
+        return true;
+    }
+
+    /**
+     * Clears and wipes content
+     */
+    public void clear() {
+        Arrays.fill(mChars, 0, mLength, '\0');
+        mLength = 0;
+    }
+
+    /**
+     * Copies content to new array
+     * Caller owns the copy and should wipe it
+     *
+     * @return copy of entered characters
+     */
+    public char[] copy() {
+        return Arrays.copyOf(mChars, mLength);
+    }
+
+    /**
+     * @return mask characters, only first {@link #length()} are valid
+     * Use with {@code TextView.setText(char[], int, int)} to avoid allocation
+     */
+    public char[] getMask() {
+        return mMask;
+    }
+
+    /**
+     * @return masked view of this buffer, reused for all calls
+     */
+    public CharSequence masked() {
+        return mMasked;
+    }
+
+    @Override
+    public int length() {
+        return mLength;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index >= mLength) {
+            throw new IndexOutOfBoundsException();
+        }
+        return mChars[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (end > mLength) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new String(mChars, start, end - start);
+    }
+
+    /**
+     * Creates String copy of entered PIN, which cannot be wiped
+     * Use only where String is required, e.g. setup callback
+     */
+    @Override
+    public String toString() {
+        return new String(mChars, 0, mLength);
+    }
+
+    private static char[] newMask(int capacity) {
+        char[] mask = new char[capacity];
+        Arrays.fill(mask, MASK_CHAR);
+        return mask;
+    }
+}
@@ -0,0 +1,28 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Verifier comparing entry with plaintext PIN
+ * Kept for compatibility with {@code PINScreenManager.setPIN(String)},
+ * prefer {@link PBKDF2PINVerifier} for new code
+ */
+public class PlainPINVerifier implements IPINVerifier {
+
+    private final char[] mPIN;
+
+    public PlainPINVerifier(CharSequence pin) {
+        mPIN = new char[pin != null ? pin.length() : 0];
+        for (int i = 0; i < mPIN.length; i++) {
+            mPIN[i] = pin.charAt(i);
+        }
+    }
+
+    @Override
+    public int getPINLength() {
+        return mPIN.length;
+    }
+
+    @Override
+    public boolean verify(char[] entry, int length) {
+        return PINCrypto.constantTimeEquals(entry, length, mPIN);
+    }
+}
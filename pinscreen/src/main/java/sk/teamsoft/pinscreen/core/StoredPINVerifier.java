@@ -0,0 +1,34 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Verifier checking entry against credential in {@link PINCredentialStore}
+ * Store is read on the verification thread, so showing lock screen never waits for disk
+ */
+public class StoredPINVerifier implements IPINVerifier {
+
+    private final PINCredentialStore mStore;
+
+    public StoredPINVerifier(PINCredentialStore store) {
+        mStore = store;
+    }
+
+    public PINCredentialStore getStore() {
+        return mStore;
+    }
+
+    /**
+     * @return length of stored PIN, or 0 if store was not loaded yet,
+     * see {@link PINCredentialStore#whenLoaded(Runnable, java.util.concurrent.Executor)}
+     */
+    @Override
+    public int getPINLength() {
+        PINCredential credential = mStore.peek();
+        return credential != null ? credential.getLength() : 0;
+    }
+
+    @Override
+    public boolean verify(char[] entry, int length) {
+        PINCredential credential = mStore.get();
+        return credential != null && credential.matches(entry, length);
+    }
+}
@@ -0,0 +1,26 @@
+package sk.teamsoft.pinscreen.core;
+
+/**
+ * Clock moved by hand, so time-based logic is tested without waiting
+ */
+class FakeClock implements IPINClock {
+
+    private volatile long mNow;
+
+    FakeClock(long now) {
+        mNow = now;
+    }
+
+    void advance(long millis) {
+        mNow += millis;
+    }
+
+    void set(long now) {
+        mNow = now;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return mNow;
+    }
+}
@@ -0,0 +1,43 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KDFCalibratorTest {
+
+    private static final long MILLIS = 1000 * 1000;
+
+    @Test
+    public void scalesLinearlyToTarget() {
+        // 8000 iterations in 40 ms means 200 per ms
+        assertEquals(30000, KDFCalibrator.scale(8000, 40 * MILLIS, 150));
+        assertEquals(8000, KDFCalibrator.scale(8000, 40 * MILLIS, 40));
+    }
+
+    @Test
+    public void roundsDownToThousands() {
+        assertEquals(12000, KDFCalibrator.scale(1000, 10 * MILLIS, 129));
+    }
+
+    @Test
+    public void clampsToLimits() {
+        assertEquals(KDFCalibrator.MIN_ITERATIONS, KDFCalibrator.scale(1000, 1000 * MILLIS, 1));
+        assertEquals(KDFCalibrator.MAX_ITERATIONS, KDFCalibrator.scale(KDFCalibrator.MAX_ITERATIONS, 1, 1000));
+    }
+
+    @Test
+    public void doesNotOverflow() {
+        assertEquals(KDFCalibrator.MAX_ITERATIONS, KDFCalibrator.scale(1024000, 20 * MILLIS, Long.MAX_VALUE / 1000));
+        assertEquals(KDFCalibrator.MAX_ITERATIONS, KDFCalibrator.scale(1024000, 1, 10000000));
+    }
+
+    @Test
+    public void calibrationIsWithinLimits() {
+        int iterations = KDFCalibrator.calibrate(20);
+        assertTrue(iterations >= KDFCalibrator.MIN_ITERATIONS);
+        assertTrue(iterations <= KDFCalibrator.MAX_ITERATIONS);
+        assertEquals(0, iterations % 1000);
+    }
+}
@@ -0,0 +1,113 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeypadLayoutTest {
+
+    private static final int BACK_POSITION = 9;
+    private static final int SUBMIT_POSITION = 11;
+
+    @Test
+    public void digitsAreRecognized() {
+        for (int code = 0; code <= 9; code++) {
+            assertTrue(KeypadLayout.isDigit(code));
+            assertEquals((char) ('0' + code), KeypadLayout.toChar(code));
+        }
+    }
+
+    @Test
+    public void otherCodesAreNotDigits() {
+        assertFalse(KeypadLayout.isDigit(KeypadLayout.KEY_BACK));
+        assertFalse(KeypadLayout.isDigit(KeypadLayout.KEY_SUBMIT));
+        assertFalse(KeypadLayout.isDigit(-1));
+        assertFalse(KeypadLayout.isDigit(Integer.MIN_VALUE));
+        assertFalse(KeypadLayout.isDigit(12));
+    }
+
+    @Test
+    public void sessionRefusesUnknownCode() {
+        PINEntrySession session = new PINEntrySession(4);
+        assertEquals(PINEntrySession.ACTION_NONE, session.onKey(-1));
+        assertEquals(0, session.getValue().length());
+    }
+
+    @Test
+    public void standardLayout() {
+        KeypadLayout layout = KeypadLayout.STANDARD;
+        assertEquals(12, layout.size());
+        assertEquals(1, layout.getKeyCode(0));
+        assertEquals(0, layout.getKeyCode(10));
+        assertEquals(KeypadLayout.KEY_BACK, layout.getKeyCode(BACK_POSITION));
+        assertEquals(KeypadLayout.KEY_SUBMIT, layout.getKeyCode(SUBMIT_POSITION));
+        assertEquals("1", layout.getLabel(0));
+        assertEquals("OK", layout.getLabel(SUBMIT_POSITION));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownCode() {
+        new KeypadLayout(new int[]{1, 2, -1});
+    }
+
+    @Test
+    public void layoutIsCopied() {
+        int[] codes = {1, 2, 3};
+        KeypadLayout layout = new KeypadLayout(codes);
+        codes[0] = 9;
+        assertEquals(1, layout.getKeyCode(0));
+    }
+
+    @Test
+    public void scrambledIsPermutationOfDigits() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            assertPermutation(KeypadLayout.scrambled(random));
+        }
+        for (int i = 0; i < 100; i++) {
+            assertPermutation(KeypadLayout.SCRAMBLED_PROVIDER.getLayout());
+        }
+    }
+
+    @Test
+    public void scrambledReachesEveryPosition() {
+        Random random = new Random(7);
+        boolean[][] seen = new boolean[10][12];
+        for (int i = 0; i < 10000; i++) {
+            KeypadLayout layout = KeypadLayout.scrambled(random);
+            for (int position = 0; position < layout.size(); position++) {
+                int code = layout.getKeyCode(position);
+                if (KeypadLayout.isDigit(code)) {
+                    seen[code][position] = true;
+                }
+            }
+        }
+        for (int digit = 0; digit <= 9; digit++) {
+            for (int position = 0; position < 12; position++) {
+                boolean digitPosition = position != BACK_POSITION && position != SUBMIT_POSITION;
+                assertEquals("digit " + digit + " at " + position, digitPosition, seen[digit][position]);
+            }
+        }
+    }
+
+    private static void assertPermutation(KeypadLayout layout) {
+        assertEquals(12, layout.size());
+        assertEquals(KeypadLayout.KEY_BACK, layout.getKeyCode(BACK_POSITION));
+        assertEquals(KeypadLayout.KEY_SUBMIT, layout.getKeyCode(SUBMIT_POSITION));
+
+        boolean[] found = new boolean[10];
+        for (int position = 0; position < layout.size(); position++) {
+            if (position == BACK_POSITION || position == SUBMIT_POSITION) {
+                continue;
+            }
+            int code = layout.getKeyCode(position);
+            assertTrue("code " + code + " at " + position, KeypadLayout.isDigit(code));
+            assertFalse("duplicate " + code, found[code]);
+            found[code] = true;
+        }
+    }
+}
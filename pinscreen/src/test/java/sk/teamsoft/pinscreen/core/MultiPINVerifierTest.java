@@ -0,0 +1,112 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MultiPINVerifierTest {
+
+    private static final int ITERATIONS = 1000;
+    private static final int PARALLELISM = 4;
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newFixedThreadPool(PARALLELISM);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyCredentials() {
+        new MultiPINVerifier(new LinkedHashMap<String, PINCredential>(), mExecutor, PARALLELISM);
+    }
+
+    @Test
+    public void identifiesEveryIdentity() {
+        Map<String, PINCredential> credentials = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            credentials.put("user" + i, PINCredential.create("100" + i, ITERATIONS));
+        }
+
+        for (int parallelism = 1; parallelism <= PARALLELISM; parallelism++) {
+            MultiPINVerifier verifier = new MultiPINVerifier(credentials, mExecutor, parallelism);
+            for (int i = 0; i < 10; i++) {
+                assertEquals("user" + i, verifier.identify(("100" + i).toCharArray(), 4));
+            }
+            assertNull(verifier.identify("9999".toCharArray(), 4));
+            assertTrue(verifier.verify("1005".toCharArray(), 4));
+            assertFalse(verifier.verify("100".toCharArray(), 3));
+        }
+    }
+
+    @Test
+    public void reportsLongestPINLength() {
+        Map<String, PINCredential> credentials = new LinkedHashMap<>();
+        credentials.put("short", PINCredential.create("1234", ITERATIONS));
+        credentials.put("long", PINCredential.create("123456", ITERATIONS));
+        credentials.put("middle", PINCredential.create("12345", ITERATIONS));
+
+        MultiPINVerifier verifier = new MultiPINVerifier(credentials, mExecutor, PARALLELISM);
+        assertEquals(6, verifier.getPINLength());
+        assertEquals("short", verifier.identify("1234".toCharArray(), 4));
+        assertEquals("long", verifier.identify("123456".toCharArray(), 6));
+    }
+
+    /**
+     * Credentials of other length would take ages to derive, so they must be skipped
+     */
+    @Test(timeout = 10000)
+    public void skipsCredentialsOfOtherLength() {
+        Map<String, PINCredential> credentials = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            credentials.put("long" + i, new PINCredential(new byte[16], new byte[20], Integer.MAX_VALUE, 6));
+        }
+        credentials.put("short", PINCredential.create("1234", ITERATIONS));
+
+        for (int parallelism = 1; parallelism <= PARALLELISM; parallelism++) {
+            MultiPINVerifier verifier = new MultiPINVerifier(credentials, mExecutor, parallelism);
+            assertEquals("short", verifier.identify("1234".toCharArray(), 4));
+            assertNull(verifier.identify("4321".toCharArray(), 4));
+        }
+    }
+
+    @Test
+    public void sharedPINIdentifiesFirstIdentity() {
+        Map<String, PINCredential> credentials = new LinkedHashMap<>();
+        for (int i = 0; i < 8; i++) {
+            credentials.put("user" + i, PINCredential.create(i < 2 ? "0000" : "1111", ITERATIONS));
+        }
+
+        MultiPINVerifier verifier = new MultiPINVerifier(credentials, mExecutor, PARALLELISM);
+        for (int i = 0; i < 50; i++) {
+            assertEquals("user0", verifier.identify("0000".toCharArray(), 4));
+            assertEquals("user2", verifier.identify("1111".toCharArray(), 4));
+        }
+    }
+
+    @Test
+    public void callerBufferIsNotWiped() {
+        Map<String, PINCredential> credentials = new LinkedHashMap<>();
+        credentials.put("a", PINCredential.create("1234", ITERATIONS));
+        credentials.put("b", PINCredential.create("5678", ITERATIONS));
+
+        char[] entry = "5678".toCharArray();
+        new MultiPINVerifier(credentials, mExecutor, 2).identify(entry, 4);
+        assertEquals("5678", new String(entry));
+    }
+}
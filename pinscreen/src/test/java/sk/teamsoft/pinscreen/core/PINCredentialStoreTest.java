@@ -0,0 +1,157 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PINCredentialStoreTest {
+
+    private static final int ITERATIONS = 1000;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private QueueExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mFile = new File(mFolder.getRoot(), "store/credential");
+        mExecutor = new QueueExecutor();
+    }
+
+    @Test
+    public void emptyStore() {
+        PINCredentialStore store = new PINCredentialStore(mFile, mExecutor);
+        assertFalse(store.isLoaded());
+        assertNull(store.peek());
+        assertNull(store.get());
+        assertTrue(store.isLoaded());
+    }
+
+    @Test
+    public void credentialSurvivesReload() {
+        PINCredential credential = PINCredential.create("1234", ITERATIONS);
+        PINCredentialStore store = new PINCredentialStore(mFile, mExecutor);
+        store.put(credential);
+        assertEquals(credential, store.peek());
+        mExecutor.runAll();
+
+        PINCredentialStore reloaded = new PINCredentialStore(mFile, mExecutor);
+        assertEquals(credential.encode(), reloaded.get().encode());
+        assertTrue(reloaded.get().matches("1234".toCharArray(), 4));
+    }
+
+    @Test
+    public void burstOfWritesIsBatched() {
+        PINCredentialStore store = new PINCredentialStore(mFile, mExecutor);
+        store.put(PINCredential.create("1111", ITERATIONS));
+        store.put(PINCredential.create("2222", ITERATIONS));
+        PINCredential last = PINCredential.create("333333", ITERATIONS);
+        store.put(last);
+        assertEquals(1, mExecutor.size());
+        mExecutor.runAll();
+
+        assertEquals(last.encode(), new PINCredentialStore(mFile, mExecutor).get().encode());
+    }
+
+    @Test
+    public void clearRemovesFile() {
+        PINCredentialStore store = new PINCredentialStore(mFile, mExecutor);
+        store.put(PINCredential.create("1234", ITERATIONS));
+        mExecutor.runAll();
+        store.clear();
+        mExecutor.runAll();
+
+        assertFalse(mFile.exists());
+        assertNull(new PINCredentialStore(mFile, mExecutor).get());
+    }
+
+    @Test
+    public void whenLoadedWaitsForLoad() {
+        PINCredential credential = PINCredential.create("123456", ITERATIONS);
+        new PINCredentialStore(mFile, mExecutor).put(credential);
+        mExecutor.runAll();
+
+        final PINCredentialStore store = new PINCredentialStore(mFile, mExecutor);
+        final StoredPINVerifier verifier = new StoredPINVerifier(store);
+        final int[] length = {-1};
+        store.whenLoaded(new Runnable() {
+            @Override
+            public void run() {
+                length[0] = verifier.getPINLength();
+            }
+        }, mExecutor);
+        assertEquals(0, verifier.getPINLength());
+        assertEquals(-1, length[0]);
+
+        mExecutor.runAll();
+        assertEquals(6, length[0]);
+    }
+
+    @Test
+    public void whenLoadedRunsRightAwayIfLoaded() {
+        PINCredentialStore store = new PINCredentialStore(mFile, mExecutor);
+        store.get();
+        final boolean[] ran = {false};
+        store.whenLoaded(new Runnable() {
+            @Override
+            public void run() {
+                ran[0] = true;
+            }
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+        assertTrue(ran[0]);
+        assertEquals(0, mExecutor.size());
+    }
+
+    @Test
+    public void unreadableStoreIsEmpty() throws Exception {
+        assertTrue(mFile.getParentFile().mkdirs());
+        assertTrue(mFile.createNewFile());
+        FileOutputStream out = new FileOutputStream(mFile);
+        out.write("garbage".getBytes("UTF-8"));
+        out.close();
+
+        assertNull(new PINCredentialStore(mFile, mExecutor).get());
+    }
+
+    /**
+     * Runs queued tasks only when asked to
+     */
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        int size() {
+            return mTasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+}
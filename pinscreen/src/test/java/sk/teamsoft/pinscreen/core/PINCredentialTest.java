@@ -0,0 +1,129 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PINCredentialTest {
+
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    public void matchesOwnPIN() {
+        PINCredential credential = PINCredential.create("1234", ITERATIONS);
+        assertTrue(credential.matches("1234".toCharArray(), 4));
+        assertTrue(credential.matches("1234567".toCharArray(), 4));
+    }
+
+    @Test
+    public void rejectsOtherPIN() {
+        PINCredential credential = PINCredential.create("1234", ITERATIONS);
+        assertFalse(credential.matches("1235".toCharArray(), 4));
+        assertFalse(credential.matches("123".toCharArray(), 3));
+        assertFalse(credential.matches("12345".toCharArray(), 5));
+        assertFalse(credential.matches(new char[0], 0));
+    }
+
+    @Test(timeout = 10000)
+    public void refusesOtherLengthWithoutDerivation() {
+        PINCredential credential = new PINCredential(new byte[16], new byte[20], Integer.MAX_VALUE, 6);
+        assertFalse(credential.matches("1234".toCharArray(), 4));
+        assertFalse(credential.matches("1234567".toCharArray(), 7));
+    }
+
+    @Test
+    public void keepsParameters() {
+        PINCredential credential = PINCredential.create("123456", ITERATIONS);
+        assertEquals(ITERATIONS, credential.getIterations());
+        assertEquals(6, credential.getLength());
+    }
+
+    @Test
+    public void createWipesOnlyItsCopy() {
+        char[] pin = "1234".toCharArray();
+        PINCredential.create(pin, 4, ITERATIONS);
+        assertEquals("1234", new String(pin));
+    }
+
+    @Test
+    public void encodeDecodeRoundTrip() {
+        PINCredential credential = PINCredential.create("4321", ITERATIONS);
+        String encoded = credential.encode();
+        PINCredential decoded = PINCredential.decode(encoded);
+
+        assertEquals(encoded, decoded.encode());
+        assertEquals(ITERATIONS, decoded.getIterations());
+        assertEquals(4, decoded.getLength());
+        assertTrue(decoded.matches("4321".toCharArray(), 4));
+        assertFalse(decoded.matches("4322".toCharArray(), 4));
+    }
+
+    @Test
+    public void encodedFormat() {
+        String[] parts = PINCredential.create("1234", ITERATIONS).encode().split("\\$");
+        assertEquals(5, parts.length);
+        assertEquals("pbkdf2", parts[0]);
+        assertEquals(String.valueOf(ITERATIONS), parts[1]);
+        assertEquals("4", parts[2]);
+        assertEquals(PINCrypto.SALT_LENGTH * 2, parts[3].length());
+        assertEquals(PINCrypto.KEY_LENGTH_BITS / 4, parts[4].length());
+    }
+
+    @Test
+    public void decodeRejectsMalformed() {
+        String[] malformed = new String[]{
+                "",
+                "pbkdf2$1000$4$00",
+                "scrypt$1000$4$00$00",
+                "pbkdf2$many$4$00$00",
+                "pbkdf2$1000$4$0$00",
+                "pbkdf2$1000$4$00$zz",
+                "pbkdf2$1000$4$00$00$00",
+        };
+        for (String encoded : malformed) {
+            try {
+                PINCredential.decode(encoded);
+                throw new AssertionError("Accepted malformed credential " + encoded);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void olderKeyLengthStillMatches() {
+        byte[] salt = PINCrypto.newSalt();
+        char[] pin = "1234".toCharArray();
+        PINCredential credential = new PINCredential(salt,
+                PINCrypto.deriveKey(pin, 4, salt, ITERATIONS, 256), ITERATIONS, 4);
+
+        assertTrue(credential.matches(pin, 4));
+        assertFalse(credential.matches("1233".toCharArray(), 4));
+        assertTrue(credential.needsRehash(ITERATIONS));
+    }
+
+    @Test
+    public void rehashOnlyWhenNoticeablyWeaker() {
+        PINCredential credential = PINCredential.create("1234", ITERATIONS);
+        assertFalse(credential.needsRehash(ITERATIONS));
+        assertFalse(credential.needsRehash(ITERATIONS + ITERATIONS / 10));
+        assertTrue(credential.needsRehash(ITERATIONS * 2));
+    }
+
+    @Test
+    public void rehashToleranceBoundary() {
+        PINCredential credential = PINCredential.create("1234", ITERATIONS);
+        // kept while at least three quarters of the preferred work factor
+        assertFalse(credential.needsRehash(ITERATIONS * 4 / 3));
+        assertTrue(credential.needsRehash(ITERATIONS * 4 / 3 + 1));
+    }
+
+    @Test
+    public void neverDowngrade() {
+        PINCredential credential = PINCredential.create("1234", ITERATIONS * 4);
+        assertFalse(credential.needsRehash(ITERATIONS));
+        assertFalse(credential.needsRehash(ITERATIONS * 4 - ITERATIONS / 2));
+    }
+}
@@ -0,0 +1,112 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PINCryptoTest {
+
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    public void bytesEqual() {
+        assertTrue(PINCrypto.constantTimeEquals(new byte[]{1, 2, 3}, new byte[]{1, 2, 3}));
+        assertTrue(PINCrypto.constantTimeEquals(new byte[0], new byte[0]));
+    }
+
+    @Test
+    public void bytesDiffer() {
+        assertFalse(PINCrypto.constantTimeEquals(new byte[]{1, 2, 3}, new byte[]{1, 2, 4}));
+        assertFalse(PINCrypto.constantTimeEquals(new byte[]{1, 2, 3}, new byte[]{0, 2, 3}));
+    }
+
+    @Test
+    public void bytesOfDifferentLengthDiffer() {
+        assertFalse(PINCrypto.constantTimeEquals(new byte[]{1, 2, 3}, new byte[]{1, 2}));
+        assertFalse(PINCrypto.constantTimeEquals(new byte[]{1, 2}, new byte[]{1, 2, 3}));
+        assertFalse(PINCrypto.constantTimeEquals(new byte[0], new byte[]{0}));
+    }
+
+    @Test
+    public void charsEqual() {
+        char[] entry = new char[]{'1', '2', '3', '4', 'x', 'x'};
+        assertTrue(PINCrypto.constantTimeEquals(entry, 4, "1234".toCharArray()));
+    }
+
+    @Test
+    public void charsDiffer() {
+        char[] entry = "1234".toCharArray();
+        assertFalse(PINCrypto.constantTimeEquals(entry, 4, "1235".toCharArray()));
+        assertFalse(PINCrypto.constantTimeEquals(entry, 4, "0234".toCharArray()));
+    }
+
+    @Test
+    public void prefixDoesNotMatch() {
+        char[] entry = "123456".toCharArray();
+        assertFalse(PINCrypto.constantTimeEquals(entry, 4, "123456".toCharArray()));
+        assertFalse(PINCrypto.constantTimeEquals(entry, 6, "1234".toCharArray()));
+    }
+
+    @Test
+    public void emptyEntry() {
+        assertTrue(PINCrypto.constantTimeEquals(new char[4], 0, new char[0]));
+        assertFalse(PINCrypto.constantTimeEquals(new char[4], 0, "0".toCharArray()));
+    }
+
+    @Test
+    public void derivedKeyIsSingleBlock() {
+        byte[] key = PINCrypto.deriveKey("1234".toCharArray(), 4, PINCrypto.newSalt(), ITERATIONS);
+        assertEquals(PINCrypto.KEY_LENGTH_BITS / 8, key.length);
+    }
+
+    @Test
+    public void derivationIsDeterministic() {
+        byte[] salt = PINCrypto.newSalt();
+        assertArrayEquals(PINCrypto.deriveKey("1234".toCharArray(), 4, salt, ITERATIONS),
+                PINCrypto.deriveKey("1234xx".toCharArray(), 4, salt, ITERATIONS));
+    }
+
+    @Test
+    public void derivationDependsOnSalt() {
+        char[] pin = "1234".toCharArray();
+        assertFalse(PINCrypto.constantTimeEquals(
+                PINCrypto.deriveKey(pin, 4, PINCrypto.newSalt(), ITERATIONS),
+                PINCrypto.deriveKey(pin, 4, PINCrypto.newSalt(), ITERATIONS)));
+    }
+
+    @Test
+    public void derivationKeepsInput() {
+        char[] pin = "1234".toCharArray();
+        PINCrypto.deriveKey(pin, 4, PINCrypto.newSalt(), ITERATIONS);
+        assertArrayEquals("1234".toCharArray(), pin);
+    }
+
+    @Test
+    public void wipe() {
+        char[] buffer = "1234".toCharArray();
+        PINCrypto.wipe(buffer);
+        assertArrayEquals(new char[4], buffer);
+        PINCrypto.wipe(null);
+    }
+
+    @Test
+    public void hexRoundTrip() {
+        byte[] bytes = new byte[]{0, 1, 0x7f, (byte) 0x80, (byte) 0xff, 0x3c};
+        assertEquals("00017f80ff3c", PINCrypto.toHex(bytes));
+        assertArrayEquals(bytes, PINCrypto.fromHex("00017f80ff3c"));
+        assertArrayEquals(bytes, PINCrypto.fromHex("00017F80FF3C"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void oddHexIsRejected() {
+        PINCrypto.fromHex("abc");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidHexIsRejected() {
+        PINCrypto.fromHex("0g");
+    }
+}
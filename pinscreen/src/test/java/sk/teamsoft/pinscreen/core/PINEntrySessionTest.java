@@ -0,0 +1,192 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PINEntrySessionTest {
+
+    private static final int STEPS = 1000000;
+    private static final long SEED = 0x5EED;
+
+    /**
+     * Backing array of {@link PINValueBuffer}, checked for leftovers of wiped characters
+     */
+    private static Field sChars;
+
+    private PINEntrySession mSession;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        sChars = PINValueBuffer.class.getDeclaredField("mChars");
+        sChars.setAccessible(true);
+    }
+
+    @Before
+    public void setUp() {
+        mSession = new PINEntrySession(4);
+    }
+
+    @Test
+    public void digitsFillUpToMaxLength() {
+        assertEquals(PINEntrySession.ACTION_CHANGED, mSession.onKey(1));
+        assertEquals(PINEntrySession.ACTION_CHANGED, mSession.onKey(2));
+        assertEquals(PINEntrySession.ACTION_CHANGED, mSession.onKey(3));
+        assertEquals(PINEntrySession.ACTION_FILLED, mSession.onKey(4));
+        assertEquals(PINEntrySession.ACTION_NONE, mSession.onKey(5));
+        assertEquals("1234", mSession.getValue().toString());
+    }
+
+    @Test
+    public void backOnEmptyValueIsRefused() {
+        int generation = mSession.getGeneration();
+        assertEquals(PINEntrySession.ACTION_NONE, mSession.onKey(KeypadLayout.KEY_BACK));
+        assertEquals(generation, mSession.getGeneration());
+    }
+
+    @Test
+    public void autoSubmitVerifiesFullValue() {
+        mSession.setAutoSubmit(true);
+        for (int i = 0; i < 3; i++) {
+            mSession.onKey(7);
+        }
+        assertEquals(PINEntrySession.ACTION_VERIFY, mSession.onKey(7));
+        assertEquals(PINEntrySession.STATE_VERIFYING, mSession.getState());
+    }
+
+    @Test
+    public void wrongEntryReturnsToEntry() {
+        mSession.onKey(1);
+        assertEquals(PINEntrySession.ACTION_VERIFY, mSession.onKey(KeypadLayout.KEY_SUBMIT));
+        mSession.onVerified(false);
+        assertEquals(PINEntrySession.STATE_ENTRY, mSession.getState());
+        assertEquals(0, mSession.getValue().length());
+    }
+
+    @Test
+    public void correctEntryRefusesKeysUntilReset() {
+        mSession.onKey(1);
+        mSession.onKey(KeypadLayout.KEY_SUBMIT);
+        mSession.onVerified(true);
+        assertEquals(PINEntrySession.STATE_DONE, mSession.getState());
+        assertEquals(PINEntrySession.ACTION_NONE, mSession.onKey(1));
+
+        mSession.reset();
+        assertEquals(PINEntrySession.ACTION_CHANGED, mSession.onKey(1));
+    }
+
+    @Test
+    public void setupSubmitsWithoutVerification() {
+        mSession.setSetup(true);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(PINEntrySession.ACTION_CHANGED, mSession.onKey(i));
+        }
+        assertEquals(PINEntrySession.ACTION_SETUP, mSession.onKey(KeypadLayout.KEY_SUBMIT));
+        assertEquals(PINEntrySession.STATE_DONE, mSession.getState());
+        assertEquals("0123", mSession.getValue().toString());
+    }
+
+    @Test
+    public void shrinkingMaxLengthWipesOverflow() throws Exception {
+        mSession.setMaxLength(6);
+        for (int i = 1; i <= 6; i++) {
+            mSession.onKey(i);
+        }
+        int generation = mSession.getGeneration();
+        mSession.setMaxLength(4);
+        assertEquals("1234", mSession.getValue().toString());
+        assertNotEquals(generation, mSession.getGeneration());
+        assertWipedAfterLength(mSession.getValue());
+    }
+
+    @Test
+    public void restoreDropsOverflow() {
+        mSession.restore("123456");
+        assertEquals("1234", mSession.getValue().toString());
+        assertEquals(PINEntrySession.STATE_ENTRY, mSession.getState());
+    }
+
+    /**
+     * Drives the session by seeded random keys and settings changes, checking invariants after every step
+     */
+    @Test
+    public void randomKeysKeepInvariants() throws Exception {
+        Random random = new Random(SEED);
+        StringBuilder expected = new StringBuilder();
+
+        for (int step = 0; step < STEPS; step++) {
+            String message = "step " + step;
+            int state = mSession.getState();
+            int generation = mSession.getGeneration();
+            String before = mSession.getValue().toString();
+            int op = random.nextInt(100);
+
+            if (op < 80) {
+                int key = random.nextInt(12);
+                int action = mSession.onKey(key);
+                if (state != PINEntrySession.STATE_ENTRY) {
+                    assertEquals(message, PINEntrySession.ACTION_NONE, action);
+                } else if (KeypadLayout.isDigit(key) && expected.length() < mSession.getMaxLength()) {
+                    expected.append(KeypadLayout.toChar(key));
+                } else if (key == KeypadLayout.KEY_BACK && expected.length() > 0) {
+                    expected.setLength(expected.length() - 1);
+                }
+                if (action == PINEntrySession.ACTION_NONE) {
+                    assertEquals(message, state, mSession.getState());
+                    assertEquals(message, generation, mSession.getGeneration());
+                }
+            } else if (op < 88) {
+                boolean correct = random.nextBoolean();
+                mSession.onVerified(correct);
+                if (state == PINEntrySession.STATE_VERIFYING) {
+                    expected.setLength(0);
+                    assertEquals(message, 0, mSession.getValue().length());
+                    assertEquals(message, correct ? PINEntrySession.STATE_DONE : PINEntrySession.STATE_ENTRY,
+                            mSession.getState());
+                } else {
+                    assertEquals(message, state, mSession.getState());
+                }
+            } else if (op < 92) {
+                mSession.reset();
+                expected.setLength(0);
+                assertEquals(message, 0, mSession.getValue().length());
+                assertEquals(message, PINEntrySession.STATE_ENTRY, mSession.getState());
+            } else if (op < 95) {
+                int maxLength = 4 + random.nextInt(5);
+                mSession.setMaxLength(maxLength);
+                if (expected.length() > maxLength) {
+                    expected.setLength(maxLength);
+                }
+            } else if (op < 98) {
+                mSession.setAutoSubmit(random.nextBoolean());
+            } else {
+                mSession.setSetup(random.nextBoolean());
+            }
+
+            PINValueBuffer value = mSession.getValue();
+            assertEquals(message, expected.toString(), value.toString());
+            assertTrue(message, value.length() <= mSession.getMaxLength());
+            assertWipedAfterLength(value);
+            if (!before.contentEquals(value)) {
+                assertNotEquals(message, generation, mSession.getGeneration());
+            }
+        }
+    }
+
+    /**
+     * Fails unless buffer holds nothing past its length
+     */
+    private static void assertWipedAfterLength(PINValueBuffer value) throws Exception {
+        char[] chars = (char[]) sChars.get(value);
+        for (int i = value.length(); i < chars.length; i++) {
+            assertEquals("character at " + i + " not wiped", '\0', chars[i]);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PINLockObserversTest {
+
+    private FakeClock mClock;
+    private PINLockTimer mTimer;
+    private PINLockObservers mObservers;
+    private QueueExecutor mExecutor;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock(1000000);
+        mTimer = new PINLockTimer(mClock, null);
+        mObservers = new PINLockObservers(mTimer);
+        mExecutor = new QueueExecutor();
+    }
+
+    @Test
+    public void changeIsDelivered() {
+        RecordingListener listener = new RecordingListener();
+        mObservers.add(listener, mExecutor);
+
+        lock();
+        mExecutor.runAll();
+        assertEquals(Collections.singletonList(true), listener.states);
+
+        unlock();
+        mExecutor.runAll();
+        assertEquals(Arrays.asList(true, false), listener.states);
+    }
+
+    @Test
+    public void burstCollapsesIntoSingleCall() {
+        RecordingListener listener = new RecordingListener();
+        mObservers.add(listener, mExecutor);
+
+        for (int i = 0; i < 10; i++) {
+            lock();
+            mObservers.dispatch();
+        }
+        assertEquals(1, mExecutor.size());
+        mExecutor.runAll();
+        assertEquals(Collections.singletonList(true), listener.states);
+    }
+
+    @Test
+    public void burstBackToDeliveredStateDeliversNothing() {
+        RecordingListener listener = new RecordingListener();
+        mObservers.add(listener, mExecutor);
+        lock();
+        mExecutor.runAll();
+
+        unlock();
+        lock();
+        assertEquals(1, mExecutor.size());
+        mExecutor.runAll();
+        assertEquals(Collections.singletonList(true), listener.states);
+    }
+
+    @Test
+    public void stateAtRegistrationIsNotDelivered() {
+        lock();
+        RecordingListener listener = new RecordingListener();
+        mObservers.add(listener, mExecutor);
+        mObservers.dispatch();
+        mExecutor.runAll();
+        assertTrue(listener.states.isEmpty());
+    }
+
+    @Test
+    public void delayedLockIsDeliveredOnDispatchAfterDelay() {
+        RecordingListener listener = new RecordingListener();
+        mObservers.add(listener, mExecutor);
+        mTimer.setDelay(1000);
+        mTimer.lockWithDelay();
+
+        mObservers.dispatch();
+        mExecutor.runAll();
+        assertTrue(listener.states.isEmpty());
+
+        mClock.advance(1000);
+        mObservers.dispatch();
+        mExecutor.runAll();
+        assertEquals(Collections.singletonList(true), listener.states);
+    }
+
+    @Test
+    public void eachListenerIsScheduledSeparately() {
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        mObservers.add(first, mExecutor);
+        mObservers.add(second, mExecutor);
+        mObservers.add(first, mExecutor);
+        assertEquals(2, mObservers.size());
+
+        lock();
+        lock();
+        assertEquals(2, mExecutor.size());
+        mExecutor.runAll();
+        assertEquals(1, first.states.size());
+        assertEquals(1, second.states.size());
+    }
+
+    @Test
+    public void removedListenerIsNotNotified() {
+        RecordingListener listener = new RecordingListener();
+        mObservers.add(listener, mExecutor);
+        mObservers.remove(listener);
+        assertEquals(0, mObservers.size());
+
+        lock();
+        mExecutor.runAll();
+        assertTrue(listener.states.isEmpty());
+    }
+
+    @Test
+    public void collectedListenerIsPruned() throws Exception {
+        RecordingListener kept = new RecordingListener();
+        mObservers.add(kept, mExecutor);
+        mObservers.add(new RecordingListener(), mExecutor);
+        assertEquals(2, mObservers.size());
+
+        for (int i = 0; i < 50 && mObservers.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+            mObservers.dispatch();
+        }
+        assertEquals(1, mObservers.size());
+    }
+
+    @Test
+    public void rejectedNotificationIsRetried() {
+        RejectingExecutor executor = new RejectingExecutor();
+        RecordingListener listener = new RecordingListener();
+        mObservers.add(listener, executor);
+
+        executor.reject = true;
+        lock();
+        assertTrue(listener.states.isEmpty());
+
+        executor.reject = false;
+        mObservers.dispatch();
+        executor.runAll();
+        assertEquals(Collections.singletonList(true), listener.states);
+    }
+
+    @Test(timeout = 30000)
+    public void deliveryIsSerializedOnPool() throws Exception {
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final List<Boolean> states = Collections.synchronizedList(new ArrayList<Boolean>());
+        IPINLockListener listener = new IPINLockListener() {
+            @Override
+            public void onLockStateChanged(boolean locked) {
+                if (inside.incrementAndGet() > 1) {
+                    overlaps.incrementAndGet();
+                }
+                states.add(locked);
+                Thread.yield();
+                inside.decrementAndGet();
+            }
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        mObservers.add(listener, pool);
+
+        int threads = 4;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10000; i++) {
+                        if (i % 2 == 0) {
+                            lock();
+                        } else {
+                            unlock();
+                        }
+                    }
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        lock();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(0, overlaps.get());
+        // states alternate, as no state is delivered twice in a row, and the last one is current
+        boolean previous = false;
+        synchronized (states) {
+            for (boolean locked : states) {
+                assertTrue(locked != previous);
+                previous = locked;
+            }
+        }
+        assertTrue(previous);
+    }
+
+    private void lock() {
+        mTimer.lock();
+        mObservers.dispatch();
+    }
+
+    private void unlock() {
+        mTimer.unlock();
+        mObservers.dispatch();
+    }
+
+    private static class RecordingListener implements IPINLockListener {
+        final List<Boolean> states = new ArrayList<>();
+
+        @Override
+        public void onLockStateChanged(boolean locked) {
+            states.add(locked);
+        }
+    }
+
+    /**
+     * Runs queued tasks only when asked to
+     */
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        int size() {
+            return mTasks.size();
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class RejectingExecutor extends QueueExecutor {
+        boolean reject = false;
+
+        @Override
+        public void execute(Runnable command) {
+            if (reject) {
+                throw new RejectedExecutionException();
+            }
+            super.execute(command);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PINLockTimerTest {
+
+    private static final long DELAY = 30000;
+
+    private FakeClock mClock;
+    private RecordingCallback mCallback;
+    private PINLockTimer mTimer;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock(1000000);
+        mCallback = new RecordingCallback();
+        mTimer = new PINLockTimer(mClock, mCallback);
+        mTimer.setDelay(DELAY);
+    }
+
+    @Test
+    public void unlockedInitially() {
+        assertFalse(mTimer.isLocked());
+        assertFalse(mTimer.getState().isScheduled());
+        assertEquals(DELAY, mTimer.getDelay());
+    }
+
+    @Test
+    public void lockAndUnlock() {
+        mTimer.lock();
+        assertTrue(mTimer.isLocked());
+        mTimer.unlock();
+        assertFalse(mTimer.isLocked());
+        assertEquals(2, mCallback.states.size());
+    }
+
+    @Test
+    public void repeatedLockNotifiesOnce() {
+        mTimer.lock();
+        mTimer.lock();
+        assertEquals(1, mCallback.states.size());
+    }
+
+    @Test
+    public void delayedLockTakesEffectOnlyAfterDelay() {
+        mTimer.lockWithDelay();
+        mClock.advance(DELAY - 1);
+        assertFalse(mTimer.isLocked());
+
+        mClock.advance(1);
+        assertTrue(mTimer.isLocked());
+        assertFalse(mTimer.getState().isScheduled());
+    }
+
+    @Test
+    public void elapsedDelayIsReportedOnce() {
+        mTimer.lockWithDelay();
+        mClock.advance(DELAY + 500);
+        assertTrue(mTimer.isLocked());
+        assertTrue(mTimer.isLocked());
+
+        assertEquals(1, mCallback.elapsed.size());
+        assertEquals(DELAY + 500, (long) mCallback.elapsed.get(0));
+    }
+
+    @Test
+    public void zeroDelayLocksAtOnce() {
+        mTimer.setDelay(0);
+        mTimer.lockWithDelay();
+        assertTrue(mTimer.isLocked());
+    }
+
+    @Test
+    public void repeatedRequestRestartsDelay() {
+        mTimer.lockWithDelay();
+        mClock.advance(DELAY - 10);
+        mTimer.lockWithDelay();
+        mClock.advance(DELAY - 10);
+        assertFalse(mTimer.isLocked());
+        mClock.advance(10);
+        assertTrue(mTimer.isLocked());
+    }
+
+    @Test
+    public void cancelBeforeDelayElapsed() {
+        mTimer.lockWithDelay();
+        mClock.advance(DELAY / 2);
+        mTimer.cancelDelayed();
+        mClock.advance(DELAY);
+        assertFalse(mTimer.isLocked());
+        assertFalse(mTimer.getState().isScheduled());
+    }
+
+    @Test
+    public void cancelAfterDelayElapsedKeepsLock() {
+        mTimer.lockWithDelay();
+        mClock.advance(DELAY);
+        mTimer.cancelDelayed();
+        assertTrue(mTimer.isLocked());
+    }
+
+    @Test
+    public void cancelWithoutPendingLockDoesNothing() {
+        mTimer.cancelDelayed();
+        assertTrue(mCallback.states.isEmpty());
+    }
+
+    @Test
+    public void unlockKeepsPendingDelayedLock() {
+        mTimer.lockWithDelay();
+        mTimer.unlock();
+        assertTrue(mTimer.getState().isScheduled());
+        mClock.advance(DELAY);
+        assertTrue(mTimer.isLocked());
+    }
+
+    @Test
+    public void unlockConsumesElapsedDelayedLock() {
+        mTimer.lockWithDelay();
+        mClock.advance(DELAY);
+        mTimer.unlock();
+        assertFalse(mTimer.isLocked());
+        assertFalse(mTimer.getState().isScheduled());
+    }
+
+    @Test
+    public void clockBehindRequestCountsAsElapsed() {
+        mTimer.lockWithDelay();
+        // device rebooted, elapsed realtime started from zero
+        mClock.set(5000);
+        assertTrue(mTimer.isLocked());
+        assertEquals(0, (long) mCallback.elapsed.get(0));
+    }
+
+    @Test
+    public void restoreDoesNotNotify() {
+        mTimer.restore(true, PINLockState.NOT_SCHEDULED);
+        assertTrue(mTimer.isLocked());
+        assertTrue(mCallback.states.isEmpty());
+    }
+
+    @Test
+    public void restoreKeepsDelay() {
+        mTimer.restore(false, mClock.elapsedRealtime());
+        assertEquals(DELAY, mTimer.getDelay());
+        mClock.advance(DELAY);
+        assertTrue(mTimer.isLocked());
+    }
+
+    @Test
+    public void restoredScheduleSurvivesProcessRestart() {
+        mTimer.lockWithDelay();
+        PINLockState saved = mTimer.getState();
+
+        PINLockTimer restored = new PINLockTimer(mClock, null);
+        restored.setDelay(DELAY);
+        restored.restore(saved.isLocked(), saved.getScheduledAt());
+        mClock.advance(DELAY - 1);
+        assertFalse(restored.isLocked());
+        mClock.advance(1);
+        assertTrue(restored.isLocked());
+    }
+
+    @Test
+    public void delayChangeAppliesToPendingLock() {
+        mTimer.lockWithDelay();
+        mTimer.setDelay(DELAY * 2);
+        mClock.advance(DELAY);
+        assertFalse(mTimer.isLocked());
+        mClock.advance(DELAY);
+        assertTrue(mTimer.isLocked());
+    }
+
+    @Test
+    public void replacedClockIsUsed() {
+        mTimer.lockWithDelay();
+        FakeClock later = new FakeClock(mClock.elapsedRealtime() + DELAY);
+        mTimer.setClock(later);
+        assertTrue(mTimer.isLocked());
+    }
+
+    @Test
+    public void concurrentReadersApplyDelayedLockOnce() throws InterruptedException {
+        final int threads = 8;
+        for (int round = 0; round < 100; round++) {
+            final RecordingCallback callback = new RecordingCallback();
+            final PINLockTimer timer = new PINLockTimer(mClock, callback);
+            timer.setDelay(DELAY);
+            timer.lockWithDelay();
+            mClock.advance(DELAY);
+
+            final CountDownLatch start = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(threads);
+            final AtomicInteger locked = new AtomicInteger();
+            for (int i = 0; i < threads; i++) {
+                new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                            if (timer.isLocked()) {
+                                locked.incrementAndGet();
+                            }
+                        } catch (InterruptedException ignored) {
+                        } finally {
+                            done.countDown();
+                        }
+                    }
+                }).start();
+            }
+            start.countDown();
+            done.await();
+
+            assertEquals(threads, locked.get());
+            assertEquals(1, callback.elapsedCount.get());
+        }
+    }
+
+    private static class RecordingCallback implements PINLockTimer.Callback {
+        final List<PINLockState> states = new ArrayList<>();
+        final List<Long> elapsed = new ArrayList<>();
+        final AtomicInteger elapsedCount = new AtomicInteger();
+
+        @Override
+        public synchronized void onStateChanged(PINLockState state) {
+            states.add(state);
+        }
+
+        @Override
+        public synchronized void onDelayElapsed(long delayMillis, long elapsedMillis) {
+            elapsed.add(elapsedMillis);
+            elapsedCount.incrementAndGet();
+        }
+    }
+}
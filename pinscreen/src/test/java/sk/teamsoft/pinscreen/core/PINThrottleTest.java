@@ -0,0 +1,227 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PINThrottleTest {
+
+    private static final long START = 1000000;
+    private static final long BASE = 1000;
+    private static final long MAX = 8000;
+    private static final long WINDOW = 60000;
+
+    /**
+     * Backoff only, capacity is too large for lockout to kick in
+     */
+    private static final PINThrottle.Policy BACKOFF = new PINThrottle.Policy(100, 2, BASE, MAX, WINDOW);
+
+    /**
+     * Lockout only, backoff never starts
+     */
+    private static final PINThrottle.Policy LOCKOUT = new PINThrottle.Policy(3, 100, 0, 0, WINDOW);
+
+    private FakeClock mClock;
+
+    @Before
+    public void setUp() {
+        mClock = new FakeClock(START);
+    }
+
+    @Test
+    public void freeAttemptsDoNotWait() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        assertEquals(0, throttle.getRemainingWait());
+        assertEquals(0, throttle.recordFailure());
+        assertEquals(0, throttle.recordFailure());
+        assertEquals(0, throttle.getRemainingWait());
+        assertEquals(2, throttle.getConsecutiveFailures());
+    }
+
+    @Test
+    public void backoffDoublesUpToMax() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        throttle.recordFailure();
+        throttle.recordFailure();
+
+        long[] expected = {BASE, 2 * BASE, 4 * BASE, MAX, MAX, MAX};
+        for (long wait : expected) {
+            assertEquals(wait, throttle.recordFailure());
+            assertEquals(wait, throttle.getRemainingWait());
+            mClock.advance(wait);
+            assertEquals(0, throttle.getRemainingWait());
+        }
+    }
+
+    @Test
+    public void remainingWaitCountsDown() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        for (int i = 0; i < 3; i++) {
+            throttle.recordFailure();
+        }
+        mClock.advance(BASE / 4);
+        assertEquals(BASE - BASE / 4, throttle.getRemainingWait());
+        mClock.advance(BASE);
+        assertEquals(0, throttle.getRemainingWait());
+    }
+
+    @Test
+    public void backoffShiftDoesNotOverflow() {
+        long max = Long.MAX_VALUE / 4;
+        PINThrottle throttle = new PINThrottle(mClock, new PINThrottle.Policy(200, 0, 3, max, WINDOW));
+
+        long previous = 0;
+        for (int i = 0; i < 200; i++) {
+            long wait = throttle.recordFailure();
+            assertTrue("wait " + wait + " after " + (i + 1) + " failures", wait >= previous && wait <= max);
+            previous = wait;
+        }
+        assertEquals(max, previous);
+    }
+
+    @Test
+    public void successResetsLimits() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure();
+        }
+        throttle.recordSuccess();
+        assertEquals(0, throttle.getRemainingWait());
+        assertEquals(0, throttle.getConsecutiveFailures());
+        assertEquals(0, throttle.recordFailure());
+    }
+
+    @Test
+    public void lockoutLastsUntilOldestFailureLeavesWindow() {
+        PINThrottle throttle = new PINThrottle(mClock, LOCKOUT);
+        assertEquals(0, throttle.recordFailure());
+        mClock.advance(1000);
+        assertEquals(0, throttle.recordFailure());
+        mClock.advance(1000);
+        assertEquals(WINDOW - 2000, throttle.recordFailure());
+
+        mClock.set(START + WINDOW - 1);
+        assertEquals(1, throttle.getRemainingWait());
+        mClock.set(START + WINDOW);
+        assertEquals(0, throttle.getRemainingWait());
+    }
+
+    @Test
+    public void lockoutSlidesWithRingBuffer() {
+        PINThrottle throttle = new PINThrottle(mClock, LOCKOUT);
+        throttle.recordFailure();
+        mClock.advance(1000);
+        throttle.recordFailure();
+        mClock.advance(1000);
+        throttle.recordFailure();
+
+        // oldest failure is overwritten, the second one now bounds the lockout
+        mClock.set(START + WINDOW);
+        assertEquals(1000, throttle.recordFailure());
+    }
+
+    @Test
+    public void failuresOutsideWindowDoNotLockOut() {
+        PINThrottle throttle = new PINThrottle(mClock, LOCKOUT);
+        throttle.recordFailure();
+        throttle.recordFailure();
+        mClock.advance(WINDOW);
+        assertEquals(0, throttle.recordFailure());
+    }
+
+    @Test
+    public void encodeRestoreRoundTrip() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        for (int i = 0; i < 5; i++) {
+            throttle.recordFailure();
+        }
+        String encoded = throttle.encode();
+
+        PINThrottle restored = new PINThrottle(mClock, BACKOFF);
+        restored.restore(encoded);
+        assertEquals(encoded, restored.encode());
+        assertEquals(throttle.getRemainingWait(), restored.getRemainingWait());
+        assertEquals(5, restored.getConsecutiveFailures());
+
+        // restored state keeps doubling
+        assertEquals(throttle.recordFailure(), restored.recordFailure());
+    }
+
+    @Test
+    public void encodedLengthIsFixed() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        int length = throttle.encode().length();
+        throttle.recordFailure();
+        assertEquals(length, throttle.encode().length());
+    }
+
+    @Test
+    public void restoreKeepsElapsedTime() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure();
+        }
+        String encoded = throttle.encode();
+
+        mClock.advance(500);
+        PINThrottle restored = new PINThrottle(mClock, BACKOFF);
+        restored.restore(encoded);
+        assertEquals(2 * BASE - 500, restored.getRemainingWait());
+    }
+
+    @Test
+    public void restoreAfterRebootRestartsPendingWait() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        for (int i = 0; i < 4; i++) {
+            throttle.recordFailure();
+        }
+        String encoded = throttle.encode();
+
+        // elapsed realtime starts from zero after reboot
+        FakeClock rebooted = new FakeClock(5000);
+        PINThrottle restored = new PINThrottle(rebooted, BACKOFF);
+        restored.restore(encoded);
+        assertEquals(2 * BASE, restored.getRemainingWait());
+        rebooted.advance(2 * BASE);
+        assertEquals(0, restored.getRemainingWait());
+    }
+
+    @Test
+    public void restoreAfterRebootKeepsLockoutWindow() {
+        PINThrottle throttle = new PINThrottle(mClock, LOCKOUT);
+        throttle.recordFailure();
+        mClock.advance(1000);
+        throttle.recordFailure();
+        mClock.advance(1000);
+        throttle.recordFailure();
+        String encoded = throttle.encode();
+
+        FakeClock rebooted = new FakeClock(5000);
+        PINThrottle restored = new PINThrottle(rebooted, LOCKOUT);
+        restored.restore(encoded);
+        assertEquals(WINDOW - 2000, restored.getRemainingWait());
+        rebooted.advance(WINDOW - 2000);
+        assertEquals(0, restored.getRemainingWait());
+        assertEquals(1000, restored.recordFailure());
+    }
+
+    @Test
+    public void invalidStateIsIgnored() {
+        PINThrottle throttle = new PINThrottle(mClock, BACKOFF);
+        String initial = throttle.encode();
+
+        throttle.restore("not hex");
+        throttle.restore("00");
+        throttle.restore(new PINThrottle(mClock, LOCKOUT).encode());
+        assertEquals(initial, throttle.encode());
+
+        // negative count
+        String corrupted = initial.substring(0, 8) + "ffffffff" + initial.substring(16);
+        assertNotEquals(initial, corrupted);
+        throttle.restore(corrupted);
+        assertEquals(initial, throttle.encode());
+    }
+}
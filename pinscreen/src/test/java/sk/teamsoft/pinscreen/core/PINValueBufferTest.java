@@ -0,0 +1,153 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PINValueBufferTest {
+
+    /**
+     * Backing array, checked for leftovers of wiped characters
+     */
+    private static Field sChars;
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        sChars = PINValueBuffer.class.getDeclaredField("mChars");
+        sChars.setAccessible(true);
+    }
+
+    @Test
+    public void appendUpToCapacity() {
+        PINValueBuffer buffer = new PINValueBuffer(3);
+        assertEquals(3, buffer.capacity());
+        assertTrue(buffer.append('1'));
+        assertTrue(buffer.append('2'));
+        assertTrue(buffer.append('3'));
+        assertFalse(buffer.append('4'));
+        assertEquals(3, buffer.length());
+        assertEquals("123", buffer.toString());
+    }
+
+    @Test
+    public void deleteLastWipesCharacter() throws Exception {
+        PINValueBuffer buffer = filled("1234");
+        assertTrue(buffer.deleteLast());
+        assertEquals("123", buffer.toString());
+        assertEquals('\0', backing(buffer)[3]);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(buffer.deleteLast());
+        }
+        assertFalse(buffer.deleteLast());
+        assertEquals(0, buffer.length());
+        assertWiped(backing(buffer));
+    }
+
+    @Test
+    public void clearWipesContent() throws Exception {
+        PINValueBuffer buffer = filled("1234");
+        char[] chars = backing(buffer);
+        buffer.clear();
+        assertEquals(0, buffer.length());
+        assertWiped(chars);
+        assertTrue(buffer.append('5'));
+        assertEquals("5", buffer.toString());
+    }
+
+    @Test
+    public void growingKeepsContentAndWipesOldArray() throws Exception {
+        PINValueBuffer buffer = filled("1234");
+        char[] old = backing(buffer);
+        buffer.ensureCapacity(6);
+        assertEquals(6, buffer.capacity());
+        assertEquals("1234", buffer.toString());
+        assertNotSame(old, backing(buffer));
+        assertWiped(old);
+
+        assertTrue(buffer.append('5'));
+        assertTrue(buffer.append('6'));
+        assertEquals("123456", buffer.toString());
+        assertEquals("******", buffer.masked().toString());
+    }
+
+    @Test
+    public void shrinkingCapacityIsIgnored() throws Exception {
+        PINValueBuffer buffer = filled("1234");
+        char[] chars = backing(buffer);
+        buffer.ensureCapacity(2);
+        assertEquals(4, buffer.capacity());
+        assertSame(chars, backing(buffer));
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        PINValueBuffer buffer = filled("1234");
+        char[] copy = buffer.copy();
+        assertArrayEquals("1234".toCharArray(), copy);
+        buffer.clear();
+        assertArrayEquals("1234".toCharArray(), copy);
+    }
+
+    @Test
+    public void maskFollowsLength() {
+        PINValueBuffer buffer = new PINValueBuffer(4);
+        CharSequence masked = buffer.masked();
+        assertSame(masked, buffer.masked());
+        assertEquals("", masked.toString());
+
+        buffer.append('1');
+        buffer.append('2');
+        assertEquals(2, masked.length());
+        assertEquals("**", masked.toString());
+        assertEquals(PINValueBuffer.MASK_CHAR, buffer.getMask()[0]);
+        assertEquals(4, buffer.getMask().length);
+    }
+
+    @Test
+    public void charSequenceAccess() {
+        PINValueBuffer buffer = filled("1234");
+        assertEquals('3', buffer.charAt(2));
+        assertEquals("23", buffer.subSequence(1, 3).toString());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void charAtPastLengthThrows() {
+        PINValueBuffer buffer = new PINValueBuffer(4);
+        buffer.append('1');
+        buffer.charAt(1);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void subSequencePastLengthThrows() {
+        PINValueBuffer buffer = new PINValueBuffer(4);
+        buffer.append('1');
+        buffer.subSequence(0, 2);
+    }
+
+    private static PINValueBuffer filled(String value) {
+        PINValueBuffer buffer = new PINValueBuffer(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.append(value.charAt(i));
+        }
+        return buffer;
+    }
+
+    private static char[] backing(PINValueBuffer buffer) throws Exception {
+        return (char[]) sChars.get(buffer);
+    }
+
+    private static void assertWiped(char[] chars) {
+        for (int i = 0; i < chars.length; i++) {
+            assertEquals("character at " + i + " not wiped", '\0', chars[i]);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package sk.teamsoft.pinscreen.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PINVerifierTest {
+
+    private static final int ITERATIONS = 1000;
+
+    @Test
+    public void plainVerifierMatches() {
+        IPINVerifier verifier = new PlainPINVerifier("1234");
+        assertEquals(4, verifier.getPINLength());
+        assertTrue(verifier.verify("1234".toCharArray(), 4));
+        assertTrue(verifier.verify("12340000".toCharArray(), 4));
+    }
+
+    @Test
+    public void plainVerifierRejects() {
+        IPINVerifier verifier = new PlainPINVerifier("1234");
+        assertFalse(verifier.verify("1243".toCharArray(), 4));
+        assertFalse(verifier.verify("123".toCharArray(), 3));
+        assertFalse(verifier.verify("12345".toCharArray(), 5));
+    }
+
+    @Test
+    public void plainVerifierKeepsCopy() {
+        StringBuilder pin = new StringBuilder("1234");
+        IPINVerifier verifier = new PlainPINVerifier(pin);
+        pin.setCharAt(0, '9');
+        assertTrue(verifier.verify("1234".toCharArray(), 4));
+    }
+
+    @Test
+    public void plainVerifierWithoutPIN() {
+        IPINVerifier verifier = new PlainPINVerifier(null);
+        assertEquals(0, verifier.getPINLength());
+        assertTrue(verifier.verify(new char[4], 0));
+        assertFalse(verifier.verify("1".toCharArray(), 1));
+    }
+
+    @Test
+    public void pbkdf2VerifierMatches() {
+        PINCredential credential = PINCredential.create("567890", ITERATIONS);
+        PBKDF2PINVerifier verifier = new PBKDF2PINVerifier(credential);
+        assertSame(credential, verifier.getCredential());
+        assertEquals(6, verifier.getPINLength());
+        assertTrue(verifier.verify("567890".toCharArray(), 6));
+    }
+
+    @Test
+    public void pbkdf2VerifierRejects() {
+        PBKDF2PINVerifier verifier = new PBKDF2PINVerifier(PINCredential.create("567890", ITERATIONS));
+        assertFalse(verifier.verify("567891".toCharArray(), 6));
+        assertFalse(verifier.verify("56789".toCharArray(), 5));
+    }
+
+    @Test
+    public void pbkdf2VerifierAgreesWithPlain() {
+        String[] pins = new String[]{"0000", "1234", "9999", "31415"};
+        String[] entries = new String[]{"0000", "1234", "1243", "9999", "31415", "3141"};
+        for (String pin : pins) {
+            IPINVerifier plain = new PlainPINVerifier(pin);
+            IPINVerifier hashed = new PBKDF2PINVerifier(PINCredential.create(pin, ITERATIONS));
+            for (String entry : entries) {
+                char[] buffer = entry.toCharArray();
+                assertEquals(pin + "/" + entry,
+                        plain.verify(buffer, buffer.length), hashed.verify(buffer, buffer.length));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pbkdf2VerifierRequiresCredential() {
+        new PBKDF2PINVerifier(null);
+    }
+}